@@ -0,0 +1,17 @@
+#!/bin/sh
+# Starts the service from the fast-startup build (mvn -Pfast-startup package): Spring AOT initialization plus the
+# AppCDS archive from the training run. Without that build it falls back to the plain executable jar.
+# Extra arguments go to the application, e.g. scripts/start.sh --spring.data.mongodb.uri=mongodb://db:27017
+# JAVA_OPTS is passed to the JVM. Use the same JDK that built the archive; otherwise the JVM warns and runs without it.
+set -e
+cd "$(dirname "$0")/.."
+
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+DIR=target/fast-startup
+APP=$(ls "$DIR"/mongoapi-*.jar 2>/dev/null | head -n 1)
+
+if [ -n "$APP" ] && [ -f "$DIR/application.jsa" ]; then
+  exec "$JAVA" $JAVA_OPTS -XX:SharedArchiveFile="$DIR/application.jsa" -Dspring.aot.enabled=true -jar "$APP" "$@"
+fi
+echo "No fast-startup build in $DIR, starting the plain jar" >&2
+exec "$JAVA" $JAVA_OPTS -jar "$(ls target/mongoapi-*.jar | head -n 1)" "$@"
@@ -0,0 +1,74 @@
+package com.practice.mongoapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.practice.mongoapi.config.JacksonConfig;
+import com.practice.mongoapi.dto.PriceQuote;
+import com.practice.mongoapi.model.Book;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Response serialization with the app's Jackson setup (including the unfiltered {@code bookFields} default). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private ObjectMapper mapper;
+    private Book book;
+    private PriceQuote quote;
+    private Page<Book> page;
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        new JacksonConfig().unfilteredByDefault().customize(builder);
+        mapper = builder.build();
+
+        List<Book> books = new ArrayList<>(pageSize);
+        for (int k = 0; k < pageSize; k++) books.add(sample(k));
+        book = books.get(0);
+        quote = new PriceQuote(book.getId(), book.getPrice(), 0.2, 31.99);
+        page = new PageImpl<>(books, PageRequest.of(3, pageSize), 5_000);
+    }
+
+    private static Book sample(int k) {
+        Book b = new Book(new ObjectId().toHexString(), "The Pragmatic Programmer, edition " + k, "Andrew Hunt",
+                39.99 + k, List.of("craft", "career", "software", "tag" + k % 10));
+        b.setCreatedAt(Instant.parse("2024-01-01T10:15:30Z"));
+        b.setUpdatedAt(Instant.parse("2024-06-01T08:00:00Z"));
+        return b;
+    }
+
+    @Benchmark
+    public byte[] book() throws IOException {
+        return mapper.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] priceQuote() throws IOException {
+        return mapper.writeValueAsBytes(quote);
+    }
+
+    @Benchmark
+    public byte[] bookPage() throws IOException {
+        return mapper.writeValueAsBytes(page);
+    }
+}
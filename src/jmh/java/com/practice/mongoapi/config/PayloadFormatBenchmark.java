@@ -0,0 +1,104 @@
+package com.practice.mongoapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.practice.mongoapi.model.Book;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization CPU and bytes on the wire for a list response of {@code books} books, per negotiated format, with and
+ * without gzip (Tomcat's default level). {@code list} writes a materialized {@code List}, {@code stream} the lazy
+ * {@code Stream} that {@code by-author} and {@code search} now return. The body size is reported next to the
+ * timings as the {@code wireBytes} secondary result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayloadFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    @Param({"1000"})
+    public int books;
+
+    private ObjectMapper mapper;
+    private List<Book> content;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 20);
+
+    @Setup
+    public void setUp() {
+        content = new ArrayList<>(books);
+        for (int k = 0; k < books; k++) content.add(sample(k));
+        mapper = switch (format) {
+            case "json" -> builder().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+            case "cbor" -> JacksonConfig.binary(builder(), new CBORFactory());
+            case "smile" -> JacksonConfig.binary(builder(), new SmileFactory());
+            default -> throw new IllegalArgumentException(format);
+        };
+    }
+
+    private static Jackson2ObjectMapperBuilder builder() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        new JacksonConfig().unfilteredByDefault().customize(builder);
+        return builder;
+    }
+
+    private static Book sample(int k) {
+        Book b = new Book(new ObjectId().toHexString(), "The Pragmatic Programmer, edition " + k, "Andrew Hunt",
+                39.99 + k, List.of("craft", "career", "software", "tag" + k % 10));
+        b.setCreatedAt(Instant.parse("2024-01-01T10:15:30Z"));
+        b.setUpdatedAt(Instant.parse("2024-06-01T08:00:00Z").plusMillis(k));
+        b.setVersion((long) k % 7);
+        return b;
+    }
+
+    /** Holds the last body size rather than a sum, so with one thread the counter reads as bytes per response. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Wire {
+        public long wireBytes;
+    }
+
+    @Benchmark
+    public int list(Wire wire) throws IOException {
+        return record(wire, write(content));
+    }
+
+    @Benchmark
+    public int stream(Wire wire) throws IOException {
+        return record(wire, write(content.stream()));
+    }
+
+    private static int record(Wire wire, int size) {
+        wire.wireBytes = size;
+        return size;
+    }
+
+    private int write(Object body) throws IOException {
+        buffer.reset();
+        OutputStream out = gzip ? new GZIPOutputStream(buffer, 8192) : buffer;
+        mapper.writeValue(out, body);
+        out.close();
+        return buffer.size();
+    }
+}
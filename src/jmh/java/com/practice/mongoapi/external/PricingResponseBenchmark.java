@@ -0,0 +1,39 @@
+package com.practice.mongoapi.external;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Decoding a pricing response the way {@link PricingClient} does: into a raw {@code Map}, then validated. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PricingResponseBenchmark {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Param({"minimal", "verbose"})
+    public String shape;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        String json = shape.equals("minimal")
+                ? "{\"discountPct\": 0.20}"
+                : "{\"discountPct\": 0.20, \"finalPrice\": 31.99, \"currency\": \"GBP\", \"campaign\": \"spring-sale\","
+                + " \"validUntil\": \"2030-01-01T00:00:00Z\", \"rules\": [\"member\", \"bundle\", \"seasonal\"]}";
+        body = json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public double parseRawMap() throws IOException {
+        return PricingClient.discountPct(mapper.readValue(body, Map.class));
+    }
+}
@@ -0,0 +1,64 @@
+package com.practice.mongoapi.service;
+
+import com.practice.mongoapi.dto.BookDto;
+import com.practice.mongoapi.dto.PriceQuote;
+import com.practice.mongoapi.model.Book;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Per-call CPU cost of the quote arithmetic and of the DTO mapping done by {@code create}/{@code update} ({@code $set} document and in-memory result). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookServiceBenchmark {
+    private static final int N = 1024;
+
+    private final Book[] books = new Book[N];
+    private final double[] discounts = new double[N];
+    private final BookDto[] dtos = new BookDto[N];
+    private int i;
+
+    @Setup
+    public void setUp() {
+        for (int k = 0; k < N; k++) {
+            books[k] = new Book(new ObjectId().toHexString(), "Title number " + k, "Author " + (k % 50),
+                    5 + (k % 300) * 0.37, List.of("fiction", "classic", "tag" + k % 7));
+            discounts[k] = (k % 40) / 100.0;
+            dtos[k] = new BookDto("Clean Architecture volume " + k, "Robert Martin", 10 + k * 0.01,
+                    List.of("craft", "design", "software"));
+        }
+    }
+
+    private int next() { return i = (i + 1) & (N - 1); }
+
+    @Benchmark
+    public PriceQuote quoteRounding() {
+        int k = next();
+        return BookService.toQuote(books[k], discounts[k]);
+    }
+
+    @Benchmark
+    public Book dtoToBook() {
+        return BookService.toBook(dtos[next()]);
+    }
+
+    @Benchmark
+    public Map<String, Object> putChanges() {
+        return BookService.changes(BookService.toBook(dtos[next()]), BookService.PUT_FIELDS);
+    }
+
+    @Benchmark
+    public Book applyPut() {
+        int k = next();
+        Book b = books[k];
+        BookService.apply(BookService.toBook(dtos[k]), BookService.PUT_FIELDS, b);
+        return b;
+    }
+}
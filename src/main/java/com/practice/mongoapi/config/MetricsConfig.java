@@ -0,0 +1,38 @@
+package com.practice.mongoapi.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hot-path meters beyond what Boot auto-configures. With {@code books.metrics.enabled=false} none of these beans
+ * exist, so nothing is registered or invoked on the request path.
+ */
+@Configuration
+@ConditionalOnProperty(name = "books.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoDocumentsListener(MeterRegistry registry) {
+        return settings -> settings.addCommandListener(new MongoDocumentsListener(registry));
+    }
+
+    /** {@code httpcomponents.httpclient.pool.*{httpclient=pricing}}: leased, available, pending and max connections. */
+    @Bean
+    public MeterBinder pricingPoolMetrics(PoolingHttpClientConnectionManager pricingConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(pricingConnectionManager, "pricing");
+    }
+
+    /** {@code resilience4j.circuitbreaker.*{name=pricing}}: state, failure rate and call outcomes. */
+    @Bean
+    public MeterBinder circuitBreakerMetrics(CircuitBreakerRegistry circuitBreakerRegistry) {
+        return TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry);
+    }
+}
@@ -0,0 +1,57 @@
+package com.practice.mongoapi.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records {@code mongodb.driver.commands.documents}: documents returned per cursor batch, tagged by command and
+ * collection. Latency per command comes from Boot's {@code mongodb.driver.commands} timer.
+ */
+public class MongoDocumentsListener implements CommandListener {
+    private final MeterRegistry registry;
+    private final Map<Integer, String> collections = new ConcurrentHashMap<>();
+
+    public MongoDocumentsListener(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String key = event.getCommandName().equals("getMore") ? "collection" : event.getCommandName();
+        BsonValue collection = event.getCommand().get(key);
+        if (collection != null && collection.isString()) {
+            collections.put(event.getRequestId(), collection.asString().getValue());
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        String collection = collections.remove(event.getRequestId());
+        BsonDocument response = event.getResponse();
+        if (response == null || !response.isDocument("cursor")) return;
+        BsonDocument cursor = response.getDocument("cursor");
+        String batch = cursor.containsKey("firstBatch") ? "firstBatch" : "nextBatch";
+        if (!cursor.isArray(batch)) return;
+        DistributionSummary.builder("mongodb.driver.commands.documents")
+                .baseUnit("documents")
+                .tag("command", event.getCommandName())
+                .tag("collection", collection == null ? "unknown" : collection)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(cursor.getArray(batch).size());
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        collections.remove(event.getRequestId());
+    }
+}
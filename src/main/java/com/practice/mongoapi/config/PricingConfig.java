@@ -0,0 +1,41 @@
+package com.practice.mongoapi.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class PricingConfig {
+
+    /** Default breaker settings: opens when too many calls fail or exceed the slow-call threshold. */
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(
+            @Value("${pricing.circuit-breaker.failure-rate-threshold:50}") float failureRate,
+            @Value("${pricing.circuit-breaker.slow-call-threshold:1s}") Duration slowCall,
+            @Value("${pricing.circuit-breaker.slow-call-rate-threshold:50}") float slowCallRate,
+            @Value("${pricing.circuit-breaker.window-size:20}") int windowSize,
+            @Value("${pricing.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${pricing.circuit-breaker.open-duration:10s}") Duration openDuration,
+            @Value("${pricing.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+        return CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRate)
+                .slowCallDurationThreshold(slowCall)
+                .slowCallRateThreshold(slowCallRate)
+                .slidingWindowSize(windowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(openDuration)
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .build());
+    }
+
+    /** While open, pricing calls fail fast instead of waiting on the pricing service. */
+    @Bean
+    public CircuitBreaker pricingCircuitBreaker(CircuitBreakerRegistry circuitBreakerRegistry) {
+        return circuitBreakerRegistry.circuitBreaker("pricing");
+    }
+}
@@ -1,11 +1,96 @@
 package com.practice.mongoapi.config;
 
+import com.practice.mongoapi.external.DeadlineExecHandler;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import io.netty.channel.ChannelOption;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class RestConfig {
+
+    @Bean
+    public PoolingHttpClientConnectionManager pricingConnectionManager(
+            @Value("${pricing.http.max-connections:100}") int maxConnections,
+            @Value("${pricing.http.max-connections-per-route:50}") int maxPerRoute,
+            @Value("${pricing.http.connect-timeout:500ms}") Duration connectTimeout,
+            @Value("${pricing.http.read-timeout:2s}") Duration readTimeout) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout.toMillis()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
+                        .build())
+                .build();
+    }
+
+    @Bean
+    public CloseableHttpClient pricingHttpClient(
+            PoolingHttpClientConnectionManager pricingConnectionManager,
+            @Value("${pricing.http.pool-timeout:200ms}") Duration poolTimeout,
+            @Value("${pricing.http.read-timeout:2s}") Duration readTimeout,
+            @Value("${pricing.http.total-timeout:3s}") Duration totalTimeout,
+            @Value("${pricing.http.idle-evict-after:30s}") Duration idleEvictAfter) {
+        return HttpClients.custom()
+                .setConnectionManager(pricingConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeout.toMillis()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
+                        .build())
+                .addExecInterceptorFirst("deadline", new DeadlineExecHandler(totalTimeout))
+                .disableAutomaticRetries()
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictAfter.toMillis()))
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient pricingHttpClient) {
+        return builder.requestFactory(() -> new HttpComponentsClientHttpRequestFactory(pricingHttpClient)).build();
+    }
+
+    /**
+     * Event-loop pricing transport for the v2 API: connect/read timeouts from {@code pricing.http.*}, but a pool of its
+     * own ({@code pricing.reactive.*}). An open connection costs no thread here, so the pool is sized for thousands of
+     * slow calls at once, and a call waits for a connection as long as its {@code total-timeout} allows.
+     */
     @Bean
-    public RestTemplate restTemplate() { return new RestTemplate(); }
+    public WebClient pricingWebClient(
+            WebClient.Builder builder,
+            @Value("${pricing.reactive.max-connections:10000}") int maxConnections,
+            @Value("${pricing.http.connect-timeout:500ms}") Duration connectTimeout,
+            @Value("${pricing.http.read-timeout:2s}") Duration readTimeout,
+            @Value("${pricing.reactive.pending-acquire-timeout:${pricing.http.total-timeout:3s}}") Duration acquireTimeout,
+            @Value("${pricing.http.idle-evict-after:30s}") Duration idleEvictAfter,
+            @Value("${books.metrics.enabled:true}") boolean metrics) {
+        ConnectionProvider pool = ConnectionProvider.builder("pricing")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(acquireTimeout)
+                .maxIdleTime(idleEvictAfter)
+                .metrics(metrics)
+                .build();
+        HttpClient http = HttpClient.create(pool)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout);
+        return builder.clientConnector(new ReactorClientHttpConnector(http)).build();
+    }
 }
@@ -0,0 +1,21 @@
+package com.practice.mongoapi.config;
+
+import com.practice.mongoapi.web.QuoteLimiter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    private final QuoteLimiter quoteLimiter;
+
+    public WebConfig(QuoteLimiter quoteLimiter) {
+        this.quoteLimiter = quoteLimiter;
+    }
+
+    /** Only the quote endpoints pass through the limiter; CRUD requests never wait on or count against it. */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(quoteLimiter).addPathPatterns(QuoteLimiter.PATHS);
+    }
+}
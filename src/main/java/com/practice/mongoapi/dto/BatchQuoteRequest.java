@@ -0,0 +1,19 @@
+package com.practice.mongoapi.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BatchQuoteRequest {
+    @NotEmpty
+    @Size(max = 100)
+    private List<String> ids;
+
+    public BatchQuoteRequest() {}
+
+    public BatchQuoteRequest(List<String> ids) { this.ids = ids; }
+
+    public List<String> getIds() { return ids; }
+    public void setIds(List<String> ids) { this.ids = ids; }
+}
@@ -0,0 +1,63 @@
+package com.practice.mongoapi.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts for the browse UI: books per tag (most used first) and per price bucket. Buckets are
+ * {@code [min, max)}; the last one is open-ended ({@code max} is null). {@code source} is {@code stats} when served
+ * from the materialized document, {@code aggregation} when computed for this request.
+ */
+public class BookFacets {
+    private long total;
+    private List<TagCount> tags = new ArrayList<>();
+    private List<PriceBucket> prices = new ArrayList<>();
+    private String source;
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+    public List<TagCount> getTags() { return tags; }
+    public void setTags(List<TagCount> tags) { this.tags = tags; }
+    public List<PriceBucket> getPrices() { return prices; }
+    public void setPrices(List<PriceBucket> prices) { this.prices = prices; }
+    public String getSource() { return source; }
+    public void setSource(String source) { this.source = source; }
+
+    public static class TagCount {
+        private String tag;
+        private long count;
+
+        public TagCount() {}
+
+        public TagCount(String tag, long count) {
+            this.tag = tag;
+            this.count = count;
+        }
+
+        public String getTag() { return tag; }
+        public void setTag(String tag) { this.tag = tag; }
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+    }
+
+    public static class PriceBucket {
+        private double min;
+        private Double max;
+        private long count;
+
+        public PriceBucket() {}
+
+        public PriceBucket(double min, Double max, long count) {
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+
+        public double getMin() { return min; }
+        public void setMin(double min) { this.min = min; }
+        public Double getMax() { return max; }
+        public void setMax(Double max) { this.max = max; }
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+    }
+}
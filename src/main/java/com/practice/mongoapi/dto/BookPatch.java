@@ -0,0 +1,42 @@
+package com.practice.mongoapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+import java.util.List;
+
+/** Body of {@code PATCH /api/books/{id}}: absent (or {@code null}) fields are left unchanged. */
+public class BookPatch {
+    @Pattern(regexp = ".*\\S.*", message = "must not be blank")
+    private String title;
+    @Pattern(regexp = ".*\\S.*", message = "must not be blank")
+    private String author;
+    @Positive
+    private Double price;
+    private List<String> tags;
+
+    public BookPatch() {}
+
+    public BookPatch(String title, String author, Double price, List<String> tags) {
+        this.title = title;
+        this.author = author;
+        this.price = price;
+        this.tags = tags;
+    }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getAuthor() { return author; }
+    public void setAuthor(String author) { this.author = author; }
+
+    public Double getPrice() { return price; }
+    public void setPrice(Double price) { this.price = price; }
+
+    public List<String> getTags() { return tags; }
+    public void setTags(List<String> tags) { this.tags = tags; }
+
+    @JsonIgnore
+    public boolean isEmpty() { return title == null && author == null && price == null && tags == null; }
+}
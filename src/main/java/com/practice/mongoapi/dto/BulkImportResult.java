@@ -0,0 +1,48 @@
+package com.practice.mongoapi.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Summary of an NDJSON import. Lines not listed in {@code errors} were inserted; at most
+ * {@code books.bulk.max-reported-errors} errors are listed, after which {@code errorsTruncated} is set.
+ */
+public class BulkImportResult {
+    private long received;
+    private long inserted;
+    private long failed;
+    private List<LineError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+
+    public long getReceived() { return received; }
+    public void setReceived(long received) { this.received = received; }
+    public long getInserted() { return inserted; }
+    public void setInserted(long inserted) { this.inserted = inserted; }
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+    public List<LineError> getErrors() { return errors; }
+    public void setErrors(List<LineError> errors) { this.errors = errors; }
+    public boolean isErrorsTruncated() { return errorsTruncated; }
+    public void setErrorsTruncated(boolean errorsTruncated) { this.errorsTruncated = errorsTruncated; }
+
+    public static class LineError {
+        private long line;
+        private int status;
+        private String message;
+
+        public LineError() {}
+
+        public LineError(long line, int status, String message) {
+            this.line = line;
+            this.status = status;
+            this.message = message;
+        }
+
+        public long getLine() { return line; }
+        public void setLine(long line) { this.line = line; }
+        public int getStatus() { return status; }
+        public void setStatus(int status) { this.status = status; }
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+}
@@ -0,0 +1,71 @@
+package com.practice.mongoapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+
+import java.util.List;
+
+/**
+ * Books matching every given {@code filter} field get the price set or scaled ({@code setPrice} or
+ * {@code scalePrice}, not both) and/or {@code removeTags} taken off and {@code addTags} appended.
+ */
+public class BulkUpdateRequest {
+    @Valid
+    @NotNull
+    private Filter filter;
+
+    @Positive
+    private Double setPrice;
+
+    @Positive
+    private Double scalePrice;
+
+    private List<@NotNull String> addTags;
+
+    private List<@NotNull String> removeTags;
+
+    public Filter getFilter() { return filter; }
+    public void setFilter(Filter filter) { this.filter = filter; }
+    public Double getSetPrice() { return setPrice; }
+    public void setSetPrice(Double setPrice) { this.setPrice = setPrice; }
+    public Double getScalePrice() { return scalePrice; }
+    public void setScalePrice(Double scalePrice) { this.scalePrice = scalePrice; }
+    public List<String> getAddTags() { return addTags; }
+    public void setAddTags(List<String> addTags) { this.addTags = addTags; }
+    public List<String> getRemoveTags() { return removeTags; }
+    public void setRemoveTags(List<String> removeTags) { this.removeTags = removeTags; }
+
+    /** {@code author} matches like {@code by-author}; the price range is {@code minPrice <= price < maxPrice}. */
+    public static class Filter {
+        private String author;
+        private String tag;
+        @PositiveOrZero
+        private Double minPrice;
+        @Positive
+        private Double maxPrice;
+
+        public Filter() {}
+
+        public Filter(String author, String tag, Double minPrice, Double maxPrice) {
+            this.author = author;
+            this.tag = tag;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+        }
+
+        public String getAuthor() { return author; }
+        public void setAuthor(String author) { this.author = author; }
+        public String getTag() { return tag; }
+        public void setTag(String tag) { this.tag = tag; }
+        public Double getMinPrice() { return minPrice; }
+        public void setMinPrice(Double minPrice) { this.minPrice = minPrice; }
+        public Double getMaxPrice() { return maxPrice; }
+        public void setMaxPrice(Double maxPrice) { this.maxPrice = maxPrice; }
+
+        @JsonIgnore
+        public boolean isEmpty() { return author == null && tag == null && minPrice == null && maxPrice == null; }
+    }
+}
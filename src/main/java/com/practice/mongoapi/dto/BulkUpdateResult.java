@@ -0,0 +1,18 @@
+package com.practice.mongoapi.dto;
+
+/**
+ * {@code matched}: books matching the filter when the update started; {@code modified}: books actually changed
+ * (those already in the requested state are skipped); {@code chunks}: update commands sent.
+ */
+public class BulkUpdateResult {
+    private long matched;
+    private long modified;
+    private int chunks;
+
+    public long getMatched() { return matched; }
+    public void setMatched(long matched) { this.matched = matched; }
+    public long getModified() { return modified; }
+    public void setModified(long modified) { this.modified = modified; }
+    public int getChunks() { return chunks; }
+    public void setChunks(int chunks) { this.chunks = chunks; }
+}
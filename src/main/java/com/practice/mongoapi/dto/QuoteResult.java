@@ -0,0 +1,31 @@
+package com.practice.mongoapi.dto;
+
+/** Outcome of one id in a batch quote: {@code status} is 200, 404 or 502 as on the single-book endpoint. */
+public class QuoteResult {
+    private String bookId;
+    private int status;
+    private PriceQuote quote;
+    private String error;
+
+    public QuoteResult() {}
+
+    public QuoteResult(String bookId, int status, PriceQuote quote, String error) {
+        this.bookId = bookId;
+        this.status = status;
+        this.quote = quote;
+        this.error = error;
+    }
+
+    public static QuoteResult ok(PriceQuote quote) { return new QuoteResult(quote.getBookId(), 200, quote, null); }
+    public static QuoteResult notFound(String bookId) { return new QuoteResult(bookId, 404, null, "Not found"); }
+    public static QuoteResult pricingError(String bookId) { return new QuoteResult(bookId, 502, null, "Pricing service error"); }
+
+    public String getBookId() { return bookId; }
+    public void setBookId(String bookId) { this.bookId = bookId; }
+    public int getStatus() { return status; }
+    public void setStatus(int status) { this.status = status; }
+    public PriceQuote getQuote() { return quote; }
+    public void setQuote(PriceQuote quote) { this.quote = quote; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
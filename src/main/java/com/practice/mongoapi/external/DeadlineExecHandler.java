@@ -0,0 +1,61 @@
+package com.practice.mongoapi.external;
+
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.classic.ExecRuntime;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancels an exchange that has not produced response headers within {@code total},
+ * covering pool lease, connect and server think time in one budget.
+ */
+public class DeadlineExecHandler implements ExecChainHandler {
+    private final long totalMillis;
+    private final ScheduledThreadPoolExecutor timer;
+
+    public DeadlineExecHandler(Duration total) {
+        this.totalMillis = total.toMillis();
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "pricing-deadline");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain)
+            throws IOException, HttpException {
+        ScheduledFuture<?> deadline = timer.schedule(() -> abort(scope.execRuntime), totalMillis, TimeUnit.MILLISECONDS);
+        try {
+            return chain.proceed(request, scope);
+        } catch (IOException e) {
+            if (deadline.isDone()) {
+                SocketTimeoutException timeout = new SocketTimeoutException("Total timeout of " + totalMillis + " ms exceeded");
+                timeout.initCause(e);
+                throw timeout;
+            }
+            throw e;
+        } finally {
+            deadline.cancel(false);
+        }
+    }
+
+    private static void abort(ExecRuntime runtime) {
+        if (runtime instanceof Cancellable c) {
+            c.cancel();
+        } else {
+            runtime.discardEndpoint();
+        }
+    }
+}
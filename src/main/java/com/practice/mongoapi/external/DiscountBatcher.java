@@ -0,0 +1,233 @@
+package com.practice.mongoapi.external;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in micro-batching for {@link PricingClient}: lookups arriving within {@code pricing.micro-batch.window} of the
+ * first one (or until {@code max-size} distinct lookups are waiting) go out as one {@code POST /discounts} call,
+ * identical lookups sharing an item, and each caller gets its own item's result.
+ * <p>
+ * Wire format: {@code {"items":[{"title","author","price"}...]}} in, {@code {"results":[...]}} out in the same order,
+ * each result {@code {"discountPct": n}} or {@code {"error": "..."}}. An error item fails only its own callers.
+ * If the batch call fails or the response does not line up, the callers fall back to single {@code GET /discount}
+ * calls; a batch endpoint answering 404/405/501 is not tried again for {@code retry-after}.
+ * The batch call runs through the pricing circuit breaker as one call, so an open circuit still fails every caller fast.
+ * At most {@code max-queued} lookups wait for a batch and {@code max-in-flight} batches for a sender; beyond that
+ * lookups go out singly right away rather than queue without bound.
+ * Meters: {@code pricing.micro-batch.size} (items per call), {@code pricing.micro-batch.fallbacks} (lookups sent singly).
+ */
+@Component
+public class DiscountBatcher {
+    private static final Logger log = LoggerFactory.getLogger(DiscountBatcher.class);
+
+    private final RestTemplate restTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final URI batchUri;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxSize;
+    private final long retryAfterNanos;
+    private final BlockingQueue<Lookup> queue;
+    private final ThreadPoolTaskExecutor senders;
+    private final Thread collector;
+    private final DistributionSummary batchSize;
+    private final Counter fallbacks;
+    private volatile long unavailableUntil;
+
+    public DiscountBatcher(RestTemplate restTemplate,
+                           CircuitBreaker pricingCircuitBreaker,
+                           MeterRegistry registry,
+                           @Value("${pricing.base-url:http://localhost:9090}") String baseUrl,
+                           @Value("${pricing.micro-batch.enabled:false}") boolean enabled,
+                           @Value("${pricing.micro-batch.window:5ms}") Duration window,
+                           @Value("${pricing.micro-batch.max-size:100}") int maxSize,
+                           @Value("${pricing.micro-batch.max-in-flight:4}") int maxInFlight,
+                           @Value("${pricing.micro-batch.max-queued:1000}") int maxQueued,
+                           @Value("${pricing.micro-batch.retry-after:1m}") Duration retryAfter) {
+        if (maxSize < 1 || maxInFlight < 1 || maxQueued < 1) {
+            throw new IllegalArgumentException("pricing.micro-batch needs max-size, max-in-flight and max-queued >= 1");
+        }
+        this.restTemplate = restTemplate;
+        this.circuitBreaker = pricingCircuitBreaker;
+        this.batchUri = URI.create(baseUrl + "/discounts");
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.maxSize = maxSize;
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.queue = new LinkedBlockingQueue<>(maxQueued);
+        this.unavailableUntil = System.nanoTime();
+        this.batchSize = DistributionSummary.builder("pricing.micro-batch.size").register(registry);
+        this.fallbacks = Counter.builder("pricing.micro-batch.fallbacks").register(registry);
+        if (!enabled) {
+            this.senders = null;
+            this.collector = null;
+            return;
+        }
+        this.senders = new ThreadPoolTaskExecutor();
+        senders.setCorePoolSize(maxInFlight);
+        senders.setMaxPoolSize(maxInFlight);
+        senders.setQueueCapacity(maxInFlight);
+        senders.setThreadNamePrefix("pricing-batch-");
+        senders.initialize();
+        this.collector = new Thread(this::collect, "pricing-batch-collector");
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    /** Whether lookups should be batched right now: enabled, and the batch endpoint not recently found missing. */
+    public boolean active() {
+        return enabled && System.nanoTime() - unavailableUntil >= 0;
+    }
+
+    /**
+     * Queues a lookup for the next batch. The future fails with {@link BatchUnavailableException} when the caller
+     * should make a single call instead (also right away when {@code max-queued} lookups are already waiting),
+     * and with the pricing error otherwise.
+     */
+    public CompletableFuture<Double> submit(String title, String author, double price) {
+        Lookup lookup = new Lookup(new Item(title, author, price), new CompletableFuture<>());
+        if (!queue.offer(lookup)) fallBack(List.of(lookup), "batch queue full");
+        return lookup.result();
+    }
+
+    /** Takes the first waiting lookup, then whatever else arrives within the window, up to {@code max-size}. */
+    private void collect() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Lookup> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxSize) {
+                    long left = deadline - System.nanoTime();
+                    Lookup next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (batch.isEmpty()) continue;
+            try {
+                senders.execute(() -> send(batch));
+            } catch (RejectedExecutionException e) {
+                fallBack(batch, "all batch senders busy");
+            }
+        }
+    }
+
+    private void send(List<Lookup> batch) {
+        Map<Item, List<CompletableFuture<Double>>> waiting = new LinkedHashMap<>();
+        batch.forEach(l -> waiting.computeIfAbsent(l.item(), i -> new ArrayList<>()).add(l.result()));
+        List<Item> items = new ArrayList<>(waiting.keySet());
+        batchSize.record(items.size());
+
+        ResponseEntity<Map> resp;
+        try {
+            resp = circuitBreaker.executeSupplier(() -> post(items));
+        } catch (CallNotPermittedException e) {
+            batch.forEach(l -> l.result().completeExceptionally(e));
+            return;
+        } catch (RuntimeException e) {
+            fallBack(batch, "batch call failed: " + e.getMessage());
+            return;
+        }
+        if (resp == null) {
+            unavailableUntil = System.nanoTime() + retryAfterNanos;
+            log.warn("Batch pricing endpoint {} not available; single lookups for the next {}s",
+                    batchUri, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos));
+            fallBack(batch, "batch endpoint not available");
+            return;
+        }
+        Object results = resp.getBody() == null ? null : resp.getBody().get("results");
+        if (!(results instanceof List<?> list) || list.size() != items.size()) {
+            fallBack(batch, "batch response does not match the " + items.size() + " items sent");
+            return;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            List<CompletableFuture<Double>> callers = waiting.get(items.get(i));
+            try {
+                double discount = discountPct(list.get(i));
+                callers.forEach(f -> f.complete(discount));
+            } catch (IllegalStateException e) {
+                callers.forEach(f -> f.completeExceptionally(e));
+            }
+        }
+    }
+
+    /** {@code null} when the endpoint does not exist: the pricing service itself answered, so not a breaker failure. */
+    private ResponseEntity<Map> post(List<Item> items) {
+        try {
+            // explicit JSON: the CBOR/Smile converters registered for the API would otherwise accept the Map too
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            return restTemplate.postForEntity(batchUri, new HttpEntity<>(Map.of("items", items), headers), Map.class);
+        } catch (HttpClientErrorException.NotFound | HttpClientErrorException.MethodNotAllowed
+                 | HttpServerErrorException.NotImplemented e) {
+            return null;
+        }
+    }
+
+    private static double discountPct(Object result) {
+        if (result instanceof Map<?, ?> m && m.get("error") != null) {
+            throw new IllegalStateException("Pricing service: " + m.get("error"));
+        }
+        return PricingClient.discountPct(result instanceof Map<?, ?> m ? m : null);
+    }
+
+    private void fallBack(List<Lookup> batch, String reason) {
+        log.debug("Falling back to {} single pricing lookups: {}", batch.size(), reason);
+        fallbacks.increment(batch.size());
+        BatchUnavailableException e = new BatchUnavailableException(reason);
+        batch.forEach(l -> l.result().completeExceptionally(e));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (collector == null) return;
+        collector.interrupt();
+        senders.shutdown();
+        List<Lookup> left = new ArrayList<>();
+        queue.drainTo(left);
+        if (!left.isEmpty()) fallBack(left, "shutting down");
+    }
+
+    /** One item of the batch request; serialized as {@code {"title","author","price"}}. */
+    record Item(String title, String author, double price) {}
+
+    private record Lookup(Item item, CompletableFuture<Double> result) {}
+
+    public static class BatchUnavailableException extends RuntimeException {
+        public BatchUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.practice.mongoapi.external;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.practice.mongoapi.concurrent.SingleFlight;
+import com.practice.mongoapi.model.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Caches discounts from {@link PricingClient} by (title, author, price).
+ * Hit/miss/eviction counts are published as {@code cache.*} meters tagged {@code cache=pricing.discounts}.
+ * Concurrent misses for one key share a single pricing call, with or without the cache enabled.
+ * Misses are loaded outside the cache's map lock (no {@code cache.get(key, loader)}), so a slow pricing
+ * call never blocks other keys in the same bin or pins a virtual thread.
+ */
+@Component
+public class DiscountCache {
+    private final PricingClient pricing;
+    private final LoadingCache<Key, Double> cache;
+    private final SingleFlight<Key, Double> inFlight = new SingleFlight<>();
+
+    public DiscountCache(PricingClient pricing,
+                         MeterRegistry registry,
+                         @Value("${pricing.cache.enabled:true}") boolean enabled,
+                         @Value("${pricing.cache.max-size:10000}") long maxSize,
+                         @Value("${pricing.cache.ttl:5m}") Duration ttl,
+                         @Value("${pricing.cache.refresh-after:0s}") Duration refreshAfter) {
+        this.pricing = pricing;
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats();
+        if (!refreshAfter.isZero() && refreshAfter.compareTo(ttl) < 0) {
+            builder.refreshAfterWrite(refreshAfter);
+        }
+        this.cache = builder.build(k -> pricing.fetchDiscountPct(k.title(), k.author(), k.price()));
+        CaffeineCacheMetrics.monitor(registry, cache, "pricing.discounts");
+    }
+
+    public double discountPct(String title, String author, double price) {
+        Key key = new Key(title, author, price);
+        if (cache == null) return inFlight.run(key, () -> pricing.fetchDiscountPct(title, author, price));
+        Double cached = cache.getIfPresent(key);
+        if (cached != null) return cached;
+        return inFlight.run(key, () -> {
+            double discount = pricing.fetchDiscountPct(title, author, price);
+            cache.put(key, discount);
+            return discount;
+        });
+    }
+
+    /** Cached discount or {@code null}; never calls the pricing service. For callers that load asynchronously. */
+    public Double peek(String title, String author, double price) {
+        return cache == null ? null : cache.getIfPresent(new Key(title, author, price));
+    }
+
+    public void put(String title, String author, double price, double discountPct) {
+        if (cache != null) cache.put(new Key(title, author, price), discountPct);
+    }
+
+    public void invalidate(Book b) {
+        if (cache == null) return;
+        cache.invalidate(new Key(b.getTitle(), b.getAuthor(), b.getPrice()));
+    }
+
+    private record Key(String title, String author, double price) {}
+}
@@ -1,5 +1,7 @@
 package com.practice.mongoapi.external;
 
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
@@ -7,31 +9,81 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Component
 public class PricingClient {
     private final RestTemplate restTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final DiscountBatcher batcher;
     private final String baseUrl;
+    private final long batchWaitNanos;
 
     public PricingClient(RestTemplate restTemplate,
-                         @Value("${pricing.base-url:http://localhost:9090}") String baseUrl) {
+                         CircuitBreaker pricingCircuitBreaker,
+                         DiscountBatcher batcher,
+                         @Value("${pricing.base-url:http://localhost:9090}") String baseUrl,
+                         @Value("${pricing.http.total-timeout:3s}") Duration totalTimeout,
+                         @Value("${pricing.micro-batch.window:5ms}") Duration batchWindow) {
         this.restTemplate = restTemplate;
+        this.circuitBreaker = pricingCircuitBreaker;
+        this.batcher = batcher;
         this.baseUrl = baseUrl;
+        // same budget as a single call, plus the time spent waiting for the batch to fill
+        this.batchWaitNanos = totalTimeout.plus(batchWindow).toNanos();
     }
 
+    /**
+     * Throws {@code CallNotPermittedException} without calling out while the circuit is open. With
+     * {@code pricing.micro-batch.enabled} the lookup waits for a batch call and only goes out singly if that fails;
+     * no answer within {@code pricing.http.total-timeout} plus the batch window fails the lookup.
+     */
+    @Timed(value = "pricing.discount", histogram = true)
     public double fetchDiscountPct(String title, String author, double price) {
-        URI uri = UriComponentsBuilder.fromHttpUrl(baseUrl + "/discount")
-                .queryParam("title", title)
-                .queryParam("author", author)
-                .queryParam("price", price)
-                .build(true).toUri();
-        ResponseEntity<Map> resp = restTemplate.getForEntity(uri, Map.class);
-        if (!resp.getStatusCode().is2xxSuccessful() || resp.getBody() == null || !resp.getBody().containsKey("discountPct")) {
+        if (batcher.active()) {
+            try {
+                return batcher.submit(title, author, price).get(batchWaitNanos, TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof DiscountBatcher.BatchUnavailableException)) {
+                    throw e.getCause() instanceof RuntimeException r ? r : new IllegalStateException(e.getCause());
+                }
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("Pricing service: no batch answer within "
+                        + TimeUnit.NANOSECONDS.toMillis(batchWaitNanos) + " ms");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for pricing batch", e);
+            }
+        }
+        return circuitBreaker.executeSupplier(() -> doFetch(title, author, price));
+    }
+
+    private double doFetch(String title, String author, double price) {
+        ResponseEntity<Map> resp = restTemplate.getForEntity(discountUri(baseUrl, title, author, price), Map.class);
+        if (!resp.getStatusCode().is2xxSuccessful()) throw new IllegalStateException("Bad response from pricing service");
+        return discountPct(resp.getBody());
+    }
+
+    /** Validates a decoded pricing response; shared with {@link ReactivePricingClient}. */
+    static double discountPct(Map<?, ?> body) {
+        if (body == null || !body.containsKey("discountPct")) {
             throw new IllegalStateException("Bad response from pricing service");
         }
-        Object val = resp.getBody().get("discountPct");
+        Object val = body.get("discountPct");
         if (!(val instanceof Number)) throw new IllegalStateException("discountPct not numeric");
         return ((Number) val).doubleValue();
     }
+
+    static URI discountUri(String baseUrl, String title, String author, double price) {
+        return UriComponentsBuilder.fromHttpUrl(baseUrl + "/discount")
+                .queryParam("title", title)
+                .queryParam("author", author)
+                .queryParam("price", price)
+                .encode()
+                .build().toUri();
+    }
 }
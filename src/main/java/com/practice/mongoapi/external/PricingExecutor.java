@@ -0,0 +1,61 @@
+package com.practice.mongoapi.external;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs pricing lookups off the request thread and caps how many calls the application has in flight
+ * against the pricing service at once: a fixed platform pool by default, or one virtual thread per
+ * lookup behind a semaphore when {@code spring.threads.virtual.enabled} is set on Java 21+.
+ * Deliberately not exposed as an {@code Executor} bean so Boot's {@code applicationTaskExecutor} stays in place.
+ */
+@Component
+public class PricingExecutor {
+    private final AsyncTaskExecutor executor;
+    private final Semaphore permits;
+
+    public PricingExecutor(@Value("${pricing.batch.parallelism:8}") int parallelism, Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("pricing-");
+            virtual.setVirtualThreads(true);
+            this.executor = virtual;
+            this.permits = new Semaphore(parallelism);
+        } else {
+            ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+            pool.setCorePoolSize(parallelism);
+            pool.setMaxPoolSize(parallelism);
+            pool.setThreadNamePrefix("pricing-");
+            pool.initialize();
+            this.executor = pool;
+            this.permits = null;
+        }
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        if (permits == null) return CompletableFuture.supplyAsync(task, executor);
+        return CompletableFuture.supplyAsync(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                return task.get();
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ThreadPoolTaskExecutor pool) pool.shutdown();
+        else if (executor instanceof SimpleAsyncTaskExecutor virtual) virtual.close();
+    }
+}
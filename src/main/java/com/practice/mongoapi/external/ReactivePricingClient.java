@@ -0,0 +1,43 @@
+package com.practice.mongoapi.external;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+
+/** Non-blocking {@link PricingClient}: same endpoint, validation and circuit breaker, no thread held while waiting. */
+@Component
+public class ReactivePricingClient {
+    private static final ParameterizedTypeReference<Map<String, Object>> BODY = new ParameterizedTypeReference<>() {};
+
+    private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
+    private final String baseUrl;
+    private final Duration totalTimeout;
+
+    public ReactivePricingClient(WebClient pricingWebClient,
+                                 CircuitBreaker pricingCircuitBreaker,
+                                 @Value("${pricing.base-url:http://localhost:9090}") String baseUrl,
+                                 @Value("${pricing.http.total-timeout:3s}") Duration totalTimeout) {
+        this.webClient = pricingWebClient;
+        this.circuitBreaker = pricingCircuitBreaker;
+        this.baseUrl = baseUrl;
+        this.totalTimeout = totalTimeout;
+    }
+
+    public Mono<Double> fetchDiscountPct(String title, String author, double price) {
+        return Mono.defer(() -> webClient.get().uri(PricingClient.discountUri(baseUrl, title, author, price))
+                        .retrieve()
+                        .bodyToMono(BODY))
+                .timeout(totalTimeout)
+                .map(PricingClient::discountPct)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Bad response from pricing service")))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+}
@@ -1,9 +1,13 @@
 package com.practice.mongoapi.model;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.validation.constraints.NotBlank;
@@ -14,8 +18,16 @@ import java.util.List;
 import java.util.Objects;
 
 @Document(collection = "books")
-@CompoundIndex(name = "uniq_title_author", def = "{'title': 1, 'author': 1}", unique = true)
+@CompoundIndexes({
+        @CompoundIndex(name = "uniq_title_author", def = "{'title': 1, 'author': 1}", unique = true),
+        @CompoundIndex(name = "author_key_id", def = "{'authorKey': 1, '_id': 1}"),
+        @CompoundIndex(name = "title_grams_id", def = "{'titleGrams': 1, '_id': 1}"),
+        @CompoundIndex(name = "tags_price", def = "{'tags': 1, 'price': 1}")
+})
+@JsonFilter(Book.FIELDS_FILTER)
 public class Book {
+    /** Jackson filter id used to serialize a sparse fieldset; unfiltered writes serialize every property. */
+    public static final String FIELDS_FILTER = "bookFields";
 
     @Id
     private String id;
@@ -31,18 +43,28 @@ public class Book {
 
     private List<String> tags;
 
+    private String authorKey;
+
+    private String titleKey;
+
+    private List<String> titleGrams;
+
     @CreatedDate
     private Instant createdAt;
 
     @LastModifiedDate
     private Instant updatedAt;
 
+    /** Incremented by every write; optimistic concurrency token behind the ETag. */
+    @Version
+    private Long version;
+
     public Book() {}
 
     public Book(String id, String title, String author, double price, List<String> tags) {
         this.id = id;
-        this.title = title;
-        this.author = author;
+        setTitle(title);
+        setAuthor(author);
         this.price = price;
         this.tags = tags;
     }
@@ -51,10 +73,19 @@ public class Book {
     public void setId(String id) { this.id = id; }
 
     public String getTitle() { return title; }
-    public void setTitle(String title) { this.title = title; }
+    /** Also refreshes {@code titleKey} and {@code titleGrams}. */
+    public void setTitle(String title) {
+        this.title = title;
+        this.titleKey = SearchKeys.fold(title);
+        this.titleGrams = SearchKeys.titleGrams(titleKey);
+    }
 
     public String getAuthor() { return author; }
-    public void setAuthor(String author) { this.author = author; }
+    /** Also refreshes {@code authorKey}. */
+    public void setAuthor(String author) {
+        this.author = author;
+        this.authorKey = SearchKeys.fold(author);
+    }
 
     public double getPrice() { return price; }
     public void setPrice(double price) { this.price = price; }
@@ -62,12 +93,24 @@ public class Book {
     public List<String> getTags() { return tags; }
     public void setTags(List<String> tags) { this.tags = tags; }
 
+    @JsonIgnore
+    public String getAuthorKey() { return authorKey; }
+
+    @JsonIgnore
+    public String getTitleKey() { return titleKey; }
+
+    @JsonIgnore
+    public List<String> getTitleGrams() { return titleGrams; }
+
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
 
     public Instant getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
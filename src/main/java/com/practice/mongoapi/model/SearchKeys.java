@@ -0,0 +1,51 @@
+package com.practice.mongoapi.model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Normalized search fields for {@link Book}. Text is folded (accents stripped, lower-cased) and titles
+ * are indexed as every substring of up to {@link #GRAM} characters, so any substring query can be
+ * answered from the {@code titleGrams} multikey index.
+ */
+public final class SearchKeys {
+    public static final int GRAM = 3;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private SearchKeys() {}
+
+    public static String fold(String s) {
+        if (s == null) return null;
+        return MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFKD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /** Every distinct 1..{@value #GRAM}-character substring of an already folded title. */
+    public static List<String> titleGrams(String folded) {
+        if (folded == null) return null;
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i < folded.length(); i++) {
+            for (int len = 1; len <= GRAM && i + len <= folded.length(); len++) {
+                grams.add(folded.substring(i, i + len));
+            }
+        }
+        return new ArrayList<>(grams);
+    }
+
+    /**
+     * Grams a title must contain to match a folded query: the query itself when it is at most
+     * {@value #GRAM} characters, otherwise its {@value #GRAM}-grams (a superset filter that needs a recheck).
+     */
+    public static List<String> queryGrams(String foldedQuery) {
+        if (foldedQuery.length() <= GRAM) return List.of(foldedQuery);
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= foldedQuery.length(); i++) {
+            grams.add(foldedQuery.substring(i, i + GRAM));
+        }
+        return new ArrayList<>(grams);
+    }
+}
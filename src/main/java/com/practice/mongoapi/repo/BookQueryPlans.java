@@ -0,0 +1,68 @@
+package com.practice.mongoapi.repo;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * One representative query per repository query method, built with the same criteria the repositories use, so their
+ * plans can be explained against a live collection. Keys are {@code Interface.method}; {@link #queryMethods()} lists
+ * what must be covered, so a new query method without a sample here is reported rather than silently skipped.
+ */
+public final class BookQueryPlans {
+    private static final String START = "000000000000000000000000";
+    private static final String SOME_ID = "65f0a1b2c3d4e5f6a7b8c9d0";
+    private static final Sort BY_ID = Sort.by("id");
+    private static final int PAGE = 20;
+
+    private BookQueryPlans() {
+    }
+
+    public static Map<String, Query> samples() {
+        Map<String, Query> samples = new LinkedHashMap<>();
+        samples.put("BookQueryRepository.findById", byId());
+        samples.put("BookQueryRepository.findAll", new Query().with(PageRequest.of(1, PAGE, BY_ID)));
+        samples.put("BookQueryRepository.findAfter", page(Criteria.where("id").gt(START)));
+        samples.put("BookQueryRepository.findByAuthorKeyAfter", page(BookQueryRepositoryImpl.authorCriteria("martin fowler", START)));
+        samples.put("BookQueryRepository.searchTitle", page(BookQueryRepositoryImpl.titleCriteria("refactoring", START)));
+        samples.put("BookQueryRepository.searchTitle(short)", page(BookQueryRepositoryImpl.titleCriteria("ref", START)));
+        samples.put("BookQueryRepository.streamByAuthorKeyAfter", page(BookQueryRepositoryImpl.authorCriteria("martin fowler", START)));
+        samples.put("BookQueryRepository.streamTitle", page(BookQueryRepositoryImpl.titleCriteria("refactoring", START)));
+        samples.put("BookQueryRepository.findAndSet", byId());
+        samples.put("BookQueryRepository.findAndDelete", byId());
+        samples.put("BookRepository.findAllById", new Query(Criteria.where("id").in(List.of(SOME_ID, START))));
+        samples.put("ReactiveBookQueryRepository.findByAuthorKey", all(BookQueryRepositoryImpl.authorCriteria("martin fowler", null)));
+        samples.put("ReactiveBookQueryRepository.searchTitle", all(BookQueryRepositoryImpl.titleCriteria("refactoring", null)));
+        samples.put("ReactiveBookQueryRepository.searchTitle(short)", all(BookQueryRepositoryImpl.titleCriteria("ref", null)));
+        return samples;
+    }
+
+    /** The query methods declared on the book repositories (inherited CRUD methods excluded). */
+    public static Set<String> queryMethods() {
+        Set<String> methods = new TreeSet<>();
+        Stream.of(BookQueryRepository.class, ReactiveBookQueryRepository.class, ReactiveBookRepository.class).forEach(type -> {
+            for (Method m : type.getDeclaredMethods()) {
+                if (!m.isSynthetic() && !m.isDefault() && !Modifier.isStatic(m.getModifiers())) {
+                    methods.add(type.getSimpleName() + "." + m.getName());
+                }
+            }
+        });
+        return methods;
+    }
+
+    private static Query byId() { return new Query(Criteria.where("id").is(SOME_ID)); }
+
+    private static Query page(Criteria criteria) { return new Query(criteria).with(BY_ID).limit(PAGE + 1); }
+
+    private static Query all(Criteria criteria) { return new Query(criteria).with(BY_ID); }
+}
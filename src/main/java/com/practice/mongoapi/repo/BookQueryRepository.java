@@ -0,0 +1,47 @@
+package com.practice.mongoapi.repo;
+
+import com.practice.mongoapi.model.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Reads that push a field projection down to Mongo. {@code fields} are {@link Book} property names;
+ * {@code null} loads whole documents. Keyset variants return books with {@code _id > afterId} in
+ * {@code pageable}'s sort.
+ */
+public interface BookQueryRepository {
+    Optional<Book> findById(String id, Collection<String> fields);
+
+    Page<Book> findAll(Pageable pageable, Collection<String> fields);
+
+    Slice<Book> findAfter(String afterId, Pageable pageable, Collection<String> fields);
+
+    /** {@code authorKey} must already be folded with {@link com.practice.mongoapi.model.SearchKeys#fold}. */
+    Slice<Book> findByAuthorKeyAfter(String authorKey, String afterId, Pageable pageable, Collection<String> fields);
+
+    /** Case- and accent-insensitive substring match on title, served from the {@code titleGrams} index. */
+    Slice<Book> searchTitle(String q, String afterId, Pageable pageable, Collection<String> fields);
+
+    /**
+     * One {@code findAndModify}: {@code $set}s {@code changes} (property name to value) and increments {@code version}
+     * on the book with this id that also satisfies {@code precondition} ({@code null} = none). Returns the book as it
+     * was before the write, or empty when nothing matched.
+     */
+    Optional<Book> findAndSet(String id, Map<String, Object> changes, Criteria precondition);
+
+    /** {@link #findByAuthorKeyAfter} as an open cursor (close the stream): no list, no next-page probe. */
+    Stream<Book> streamByAuthorKeyAfter(String authorKey, String afterId, Pageable pageable, Collection<String> fields);
+
+    /** {@link #searchTitle} as an open cursor (close the stream). */
+    Stream<Book> streamTitle(String q, String afterId, Pageable pageable, Collection<String> fields);
+
+    /** One {@code findAndModify} with {@code remove}: the deleted book, or empty if there was none. */
+    Optional<Book> findAndDelete(String id);
+}
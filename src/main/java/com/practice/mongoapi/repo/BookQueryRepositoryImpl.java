@@ -0,0 +1,119 @@
+package com.practice.mongoapi.repo;
+
+import com.practice.mongoapi.model.Book;
+import com.practice.mongoapi.model.SearchKeys;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+class BookQueryRepositoryImpl implements BookQueryRepository {
+    private final MongoTemplate mongo;
+
+    BookQueryRepositoryImpl(MongoTemplate mongo) {
+        this.mongo = mongo;
+    }
+
+    @Override
+    public Optional<Book> findById(String id, Collection<String> fields) {
+        return Optional.ofNullable(mongo.findOne(project(new Query(Criteria.where("id").is(id)), fields), Book.class));
+    }
+
+    @Override
+    public Page<Book> findAll(Pageable pageable, Collection<String> fields) {
+        Query query = project(new Query().with(pageable), fields);
+        List<Book> books = mongo.find(query, Book.class);
+        return PageableExecutionUtils.getPage(books, pageable,
+                () -> mongo.count(Query.of(query).limit(-1).skip(-1), Book.class));
+    }
+
+    @Override
+    public Slice<Book> findAfter(String afterId, Pageable pageable, Collection<String> fields) {
+        return slice(Criteria.where("id").gt(afterId), pageable, fields);
+    }
+
+    @Override
+    public Slice<Book> findByAuthorKeyAfter(String authorKey, String afterId, Pageable pageable, Collection<String> fields) {
+        return slice(authorCriteria(authorKey, afterId), pageable, fields);
+    }
+
+    @Override
+    public Slice<Book> searchTitle(String q, String afterId, Pageable pageable, Collection<String> fields) {
+        return slice(titleCriteria(q, afterId), pageable, fields);
+    }
+
+    @Override
+    public Stream<Book> streamByAuthorKeyAfter(String authorKey, String afterId, Pageable pageable, Collection<String> fields) {
+        return stream(authorCriteria(authorKey, afterId), pageable, fields);
+    }
+
+    @Override
+    public Stream<Book> streamTitle(String q, String afterId, Pageable pageable, Collection<String> fields) {
+        return stream(titleCriteria(q, afterId), pageable, fields);
+    }
+
+    /** Also used by {@link ReactiveBookQueryRepositoryImpl}, unpaged: a {@code null} {@code afterId} means from the start. */
+    static Criteria authorCriteria(String authorKey, String afterId) {
+        Criteria criteria = Criteria.where("authorKey").is(authorKey);
+        return afterId == null ? criteria : criteria.and("id").gt(afterId);
+    }
+
+    static Criteria titleCriteria(String q, String afterId) {
+        String folded = SearchKeys.fold(q);
+        Criteria criteria = afterId == null ? new Criteria() : Criteria.where("id").gt(afterId);
+        if (!folded.isEmpty()) {
+            List<String> grams = SearchKeys.queryGrams(folded);
+            if (folded.length() <= SearchKeys.GRAM) {
+                criteria.and("titleGrams").is(grams.get(0));
+            } else {
+                criteria.and("titleGrams").all(grams).and("titleKey").regex(Pattern.quote(folded));
+            }
+        }
+        return criteria;
+    }
+
+    @Override
+    public Optional<Book> findAndSet(String id, Map<String, Object> changes, Criteria precondition) {
+        Criteria criteria = Criteria.where("id").is(id);
+        if (precondition != null) criteria.andOperator(precondition);
+        Update update = new Update();
+        changes.forEach(update::set);
+        update.inc("version", 1);
+        return Optional.ofNullable(mongo.findAndModify(new Query(criteria), update,
+                FindAndModifyOptions.options().returnNew(false), Book.class));
+    }
+
+    @Override
+    public Optional<Book> findAndDelete(String id) {
+        return Optional.ofNullable(mongo.findAndRemove(new Query(Criteria.where("id").is(id)), Book.class));
+    }
+
+    private Slice<Book> slice(Criteria criteria, Pageable pageable, Collection<String> fields) {
+        Query query = project(new Query(criteria).with(pageable.getSort()).limit(pageable.getPageSize() + 1), fields);
+        List<Book> books = mongo.find(query, Book.class);
+        boolean hasNext = books.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? books.subList(0, pageable.getPageSize()) : books, pageable, hasNext);
+    }
+
+    private Stream<Book> stream(Criteria criteria, Pageable pageable, Collection<String> fields) {
+        return mongo.stream(project(new Query(criteria).with(pageable.getSort()).limit(pageable.getPageSize()), fields), Book.class);
+    }
+
+    private static Query project(Query query, Collection<String> fields) {
+        if (fields != null) fields.forEach(query.fields()::include);
+        return query;
+    }
+}
@@ -0,0 +1,16 @@
+package com.practice.mongoapi.repo;
+
+import com.practice.mongoapi.model.Book;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking counterparts of the {@link BookQueryRepository} searches, built from the same criteria so both
+ * use the same indexes. Results come in {@code _id} order, unpaged.
+ */
+public interface ReactiveBookQueryRepository {
+    /** {@code authorKey} must already be folded with {@link com.practice.mongoapi.model.SearchKeys#fold}. */
+    Flux<Book> findByAuthorKey(String authorKey);
+
+    /** Same match as {@link BookQueryRepository#searchTitle}; a blank {@code q} returns every book. */
+    Flux<Book> searchTitle(String q);
+}
@@ -0,0 +1,32 @@
+package com.practice.mongoapi.repo;
+
+import com.practice.mongoapi.model.Book;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+
+class ReactiveBookQueryRepositoryImpl implements ReactiveBookQueryRepository {
+    private static final Sort BY_ID = Sort.by("id");
+
+    private final ReactiveMongoTemplate mongo;
+
+    ReactiveBookQueryRepositoryImpl(ReactiveMongoTemplate mongo) {
+        this.mongo = mongo;
+    }
+
+    @Override
+    public Flux<Book> findByAuthorKey(String authorKey) {
+        return find(BookQueryRepositoryImpl.authorCriteria(authorKey, null));
+    }
+
+    @Override
+    public Flux<Book> searchTitle(String q) {
+        return find(BookQueryRepositoryImpl.titleCriteria(q, null));
+    }
+
+    private Flux<Book> find(Criteria criteria) {
+        return mongo.find(new Query(criteria).with(BY_ID), Book.class);
+    }
+}
@@ -0,0 +1,10 @@
+package com.practice.mongoapi.repo;
+
+import com.practice.mongoapi.model.Book;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+/** Non-blocking counterpart of {@link BookRepository}, using the same indexed search fields. */
+@Repository
+public interface ReactiveBookRepository extends ReactiveMongoRepository<Book, String>, ReactiveBookQueryRepository {
+}
@@ -0,0 +1,192 @@
+package com.practice.mongoapi.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.practice.mongoapi.dto.BulkUpdateRequest;
+import com.practice.mongoapi.dto.BulkUpdateResult;
+import com.practice.mongoapi.model.Book;
+import com.practice.mongoapi.model.SearchKeys;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reprices and retags every book matching a filter with server-side updates instead of a read and write per book.
+ * Up to {@code books.bulk.update-chunk-size} matches go out as one {@code updateMany}; larger matches are walked in
+ * {@code _id} order and updated a chunk at a time, logging progress, so no single command runs for minutes.
+ * <p>
+ * The update is a pipeline, so a scaled price is rounded to cents and tags can be removed and added in one pass.
+ * Books already in the requested state are not written: their {@code version}/{@code updatedAt} and ETags stay as
+ * they are. Changed books get a new {@code version} and {@code updatedAt} like any {@code PUT}. The materialized
+ * facet counts are adjusted with {@code $inc} by each chunk's before/after difference, so concurrent writes keep theirs.
+ */
+@Service
+public class BookBulkUpdater {
+    private static final Logger log = LoggerFactory.getLogger(BookBulkUpdater.class);
+
+    private final MongoTemplate mongo;
+    private final BookCache books;
+    private final BookFacetStats facets;
+    private final int chunkSize;
+
+    public BookBulkUpdater(MongoTemplate mongo, BookCache books, BookFacetStats facets,
+                           @Value("${books.bulk.update-chunk-size:10000}") int chunkSize) {
+        this.mongo = mongo;
+        this.books = books;
+        this.facets = facets;
+        this.chunkSize = chunkSize;
+    }
+
+    public BulkUpdateResult update(BulkUpdateRequest req) {
+        BulkUpdateRequest.Filter filter = req.getFilter();
+        if (filter.isEmpty()) throw new InvalidBulkUpdateException("filter needs at least one of author, tag, minPrice, maxPrice");
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null && filter.getMinPrice() >= filter.getMaxPrice()) {
+            throw new InvalidBulkUpdateException("filter.minPrice must be below filter.maxPrice");
+        }
+        if (req.getSetPrice() != null && req.getScalePrice() != null) {
+            throw new InvalidBulkUpdateException("setPrice and scalePrice cannot be combined");
+        }
+        List<String> add = distinct(req.getAddTags());
+        List<String> remove = distinct(req.getRemoveTags());
+        if (req.getSetPrice() == null && req.getScalePrice() == null && add.isEmpty() && remove.isEmpty()) {
+            throw new InvalidBulkUpdateException("Nothing to update");
+        }
+
+        Criteria matching = criteria(filter);
+        BulkUpdateResult result = new BulkUpdateResult();
+        result.setMatched(mongo.count(new Query(matching), Book.class));
+        Criteria changing = needsChange(req, add, remove);
+        AggregationUpdate update = update(req, add, remove);
+
+        if (result.getMatched() <= chunkSize) {
+            result.setModified(chunk(matching, changing, null, update).modified);
+            result.setChunks(1);
+        } else {
+            String after = BookCursor.START;
+            while (true) {
+                Chunk chunk = chunk(matching, changing, after, update);
+                if (chunk.last == null) break;
+                result.setModified(result.getModified() + chunk.modified);
+                result.setChunks(result.getChunks() + 1);
+                after = chunk.last;
+                log.info("Bulk update: {} of {} matching books modified ({} chunks)",
+                        result.getModified(), result.getMatched(), result.getChunks());
+            }
+        }
+
+        if (result.getModified() > 0) {
+            // ids are not known here; other nodes still invalidate per book from the change stream
+            books.invalidateAll();
+        }
+        return result;
+    }
+
+    /**
+     * Updates the next books after {@code after} ({@code null}: all of them) that need the change, reading their tags
+     * and prices before and after so the facet counts move by the difference instead of being recomputed.
+     */
+    private Chunk chunk(Criteria matching, Criteria changing, String after, AggregationUpdate update) {
+        Query next = new Query(and(matching, changing, after == null ? null : Criteria.where("id").gt(after)))
+                .with(Sort.by("id")).limit(chunkSize);
+        next.fields().include("id", "tags", "price");
+        List<Book> before = mongo.find(next, Book.class);
+        if (before.isEmpty()) return new Chunk(null, 0);
+        List<String> ids = before.stream().map(Book::getId).toList();
+        UpdateResult r = mongo.updateMulti(new Query(and(matching, changing, Criteria.where("id").in(ids))), update, Book.class);
+        if (r.getModifiedCount() > 0) {
+            Query changed = new Query(Criteria.where("id").in(ids));
+            changed.fields().include("id", "tags", "price");
+            facets.rewritten(before, mongo.find(changed, Book.class));
+        }
+        return new Chunk(ids.get(ids.size() - 1), r.getModifiedCount());
+    }
+
+    private record Chunk(String last, long modified) {}
+
+    private static Criteria criteria(BulkUpdateRequest.Filter filter) {
+        Criteria c = new Criteria();
+        if (filter.getAuthor() != null) c.and("authorKey").is(SearchKeys.fold(filter.getAuthor()));
+        if (filter.getTag() != null) c.and("tags").is(filter.getTag());
+        if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+            Criteria price = c.and("price");
+            if (filter.getMinPrice() != null) price.gte(filter.getMinPrice());
+            if (filter.getMaxPrice() != null) price.lt(filter.getMaxPrice());
+        }
+        return c;
+    }
+
+    /** Matches books the update would actually change; {@code null} when it changes every match (a price scale). */
+    private static Criteria needsChange(BulkUpdateRequest req, List<String> add, List<String> remove) {
+        if (req.getScalePrice() != null) return null;
+        List<Criteria> changes = new ArrayList<>();
+        if (req.getSetPrice() != null) changes.add(Criteria.where("price").ne(req.getSetPrice()));
+        if (!add.isEmpty()) changes.add(Criteria.where("tags").not().all(add));
+        if (!remove.isEmpty()) changes.add(Criteria.where("tags").in(remove));
+        return new Criteria().orOperator(changes);
+    }
+
+    private static AggregationUpdate update(BulkUpdateRequest req, List<String> add, List<String> remove) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        Document set = new Document();
+        if (req.getSetPrice() != null) {
+            set.append("price", req.getSetPrice());
+        } else if (req.getScalePrice() != null) {
+            Document scaled = new Document("$round", List.of(new Document("$multiply", List.of("$price", req.getScalePrice())), 2));
+            set.append("price", new Document("$max", List.of(0.01, scaled)));
+        }
+        if (!remove.isEmpty()) {
+            Document kept = filter("$tags", new Document("$not", List.of(new Document("$in", List.of("$$this", literal(remove))))));
+            set.append("tags", new Document("$cond", List.of(new Document("$isArray", "$tags"), kept, "$tags")));
+        }
+        set.append("updatedAt", Date.from(Instant.now().truncatedTo(ChronoUnit.MILLIS)));
+        // MongoTemplate appends the @Version increment as a last stage; imported books without one then get 1
+        set.append("version", new Document("$ifNull", List.of("$version", 0)));
+        stages.add(stage(set));
+        if (!add.isEmpty()) {
+            // second stage: sees the tags left by removeTags
+            Object tags = new Document("$ifNull", List.of("$tags", List.of()));
+            Document missing = filter(literal(add), new Document("$not", List.of(new Document("$in", List.of("$$this", tags)))));
+            stages.add(stage(new Document("tags", new Document("$concatArrays", List.of(tags, missing)))));
+        }
+        return AggregationUpdate.from(stages);
+    }
+
+    private static Document filter(Object input, Document cond) {
+        return new Document("$filter", new Document("input", input).append("cond", cond));
+    }
+
+    /** Tags are data: without {@code $literal} a tag starting with {@code $} would be read as a field path. */
+    private static Document literal(List<String> values) { return new Document("$literal", values); }
+
+    private static AggregationOperation stage(Document set) { return context -> new Document("$set", set); }
+
+    private static Criteria and(Criteria... criteria) {
+        return new Criteria().andOperator(Arrays.stream(criteria).filter(Objects::nonNull).toList());
+    }
+
+    private static List<String> distinct(List<String> tags) {
+        return tags == null ? List.of() : List.copyOf(new LinkedHashSet<>(tags));
+    }
+
+    public static class InvalidBulkUpdateException extends RuntimeException {
+        public InvalidBulkUpdateException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.practice.mongoapi.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.practice.mongoapi.model.Book;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Near-cache of full {@link Book} documents by id. Local writes invalidate directly; writes from other nodes arrive
+ * through {@link BookChangeStream}. While the change stream is down, entries are cached for {@code fallback-ttl}
+ * only, and everything cached before the outage is dropped.
+ * <p>
+ * Loads run outside the cache's map lock: a miss installs an incomplete future, loads on the caller's thread and
+ * completes it. An invalidation that lands while a load is in flight discards that load's result.
+ * Meters: {@code cache.*{cache=books.byId}} (hit ratio), {@code books.cache.change.stream} (1 = up) and
+ * {@code books.cache.invalidation.lag} (Mongo write to local invalidation, i.e. how long a stale entry could be served).
+ */
+@Component
+public class BookCache {
+    private final AsyncCache<String, Book> cache;
+    private final Duration ttl;
+    private final Duration fallbackTtl;
+    private final Timer invalidationLag;
+    private volatile boolean streamUp;
+
+    public BookCache(MeterRegistry registry,
+                     @Value("${books.cache.enabled:true}") boolean enabled,
+                     @Value("${books.cache.max-size:10000}") long maxSize,
+                     @Value("${books.cache.ttl:10m}") Duration ttl,
+                     @Value("${books.cache.fallback-ttl:5s}") Duration fallbackTtl) {
+        this.ttl = ttl;
+        this.fallbackTtl = fallbackTtl;
+        this.invalidationLag = Timer.builder("books.cache.invalidation.lag")
+                .description("Time from a write in Mongo to the change-stream invalidation of the cached book")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("books.cache.change.stream", this, c -> c.streamUp ? 1 : 0).register(registry);
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Book>() {
+                    @Override
+                    public long expireAfterCreate(String id, Book book, long now) { return currentTtl(); }
+
+                    @Override
+                    public long expireAfterUpdate(String id, Book book, long now, long remaining) { return currentTtl(); }
+
+                    @Override
+                    public long expireAfterRead(String id, Book book, long now, long remaining) { return remaining; }
+                })
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(registry, cache, "books.byId");
+    }
+
+    public boolean isEnabled() { return cache != null; }
+
+    public Optional<Book> get(String id, Function<String, Optional<Book>> loader) {
+        if (cache == null) return loader.apply(id);
+        CompletableFuture<Book> mine = new CompletableFuture<>();
+        CompletableFuture<Book> entry = cache.get(id, (k, executor) -> mine);
+        if (entry == mine) {
+            try {
+                mine.complete(loader.apply(id).orElse(null));
+            } catch (RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return Optional.ofNullable(entry.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    /** The cached book if already loaded; never loads, never waits and does not count as a hit or miss. */
+    public Optional<Book> peek(String id) {
+        if (cache == null) return Optional.empty();
+        CompletableFuture<Book> entry = cache.asMap().get(id);
+        if (entry == null || !entry.isDone() || entry.isCompletedExceptionally()) return Optional.empty();
+        return Optional.ofNullable(entry.join());
+    }
+
+    public void invalidate(String id) {
+        if (cache != null) cache.synchronous().invalidate(id);
+    }
+
+    /** Invalidation for a write observed on the change stream, committed at {@code writtenAtMillis}. */
+    void invalidate(String id, long writtenAtMillis) {
+        invalidate(id);
+        if (writtenAtMillis > 0) invalidationLag.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - writtenAtMillis)));
+    }
+
+    public void invalidateAll() {
+        if (cache != null) cache.synchronous().invalidateAll();
+    }
+
+    void streamUp() {
+        streamUp = true;
+    }
+
+    /** Events may have been missed: drop everything and cache only briefly until the stream is back. */
+    void streamDown() {
+        streamUp = false;
+        invalidateAll();
+    }
+
+    private long currentTtl() {
+        return (streamUp ? ttl : fallbackTtl).toNanos();
+    }
+}
@@ -0,0 +1,157 @@
+package com.practice.mongoapi.service;
+
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.practice.mongoapi.model.Book;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails a change stream on the books collection and evicts changed ids from {@link BookCache}, so writes made by
+ * other nodes stop being served from this node's cache. Resumes after the last seen event when the stream drops;
+ * while it is down (or on a standalone server, which has no change streams) the cache falls back to short TTLs.
+ * Dropping or renaming the collection invalidates the stream; it is reopened right away, starting after that event.
+ */
+@Component
+public class BookChangeStream implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(BookChangeStream.class);
+
+    private final MongoTemplate mongo;
+    private final BookCache cache;
+    private final boolean enabled;
+    private final Duration retryInterval;
+    private volatile Thread worker;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+    private BsonDocument resumeToken;
+    private boolean invalidated;
+    private int failures;
+
+    public BookChangeStream(MongoTemplate mongo, BookCache cache,
+                            @Value("${books.cache.change-stream.enabled:true}") boolean enabled,
+                            @Value("${books.cache.change-stream.retry-interval:5s}") Duration retryInterval) {
+        this.mongo = mongo;
+        this.cache = cache;
+        this.enabled = enabled;
+        this.retryInterval = retryInterval;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || !cache.isEnabled()) return;
+        worker = new Thread(this::run, "book-change-stream");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread t = worker;
+        worker = null;
+        if (t == null) return;
+        t.interrupt();
+        MongoChangeStreamCursor<?> c = cursor;
+        if (c != null) {
+            try {
+                c.close();
+            } catch (RuntimeException ignored) {
+                // the worker is exiting either way
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() { return worker != null; }
+
+    private void run() {
+        while (worker == Thread.currentThread()) {
+            boolean closed = false;
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> c = open()) {
+                cursor = c;
+                failures = 0;
+                cache.streamUp();
+                log.info("Watching {} for book cache invalidation", collection());
+                while (worker == Thread.currentThread()) {
+                    ChangeStreamDocument<Document> event = c.tryNext();
+                    if (event == null) {
+                        if (c.getServerCursor() == null) break; // closed on the server: tryNext() would spin
+                        continue;
+                    }
+                    resumeToken = event.getResumeToken();
+                    invalidated = event.getOperationType() == OperationType.INVALIDATE;
+                    apply(event);
+                    if (invalidated) break; // the server closes the cursor after this event
+                }
+                closed = true;
+            } catch (RuntimeException e) {
+                if (worker != Thread.currentThread()) break;
+                if (failures++ == 0) log.warn("Book change stream unavailable, caching with fallback TTL: {}", e.getMessage());
+                else log.debug("Book change stream still unavailable: {}", e.getMessage());
+            } finally {
+                cursor = null;
+                cache.streamDown();
+            }
+            if (closed && invalidated && worker == Thread.currentThread()) {
+                log.info("Book change stream on {} closed by the server (collection dropped or renamed); reopening", collection());
+                continue;
+            }
+            if (!pause()) break;
+        }
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open() {
+        if (resumeToken == null) return watch().cursor();
+        try {
+            // resumeAfter rejects an invalidate event's token; startAfter takes it and opens a new stream after it
+            return invalidated ? watch().startAfter(resumeToken).cursor() : watch().resumeAfter(resumeToken).cursor();
+        } catch (RuntimeException e) {
+            // resume point fell off the oplog: start fresh (the cache was already cleared)
+            resumeToken = null;
+            invalidated = false;
+            return watch().cursor();
+        }
+    }
+
+    private ChangeStreamIterable<Document> watch() {
+        return mongo.getCollection(collection()).watch(List.of()).maxAwaitTime(1, TimeUnit.SECONDS);
+    }
+
+    private void apply(ChangeStreamDocument<Document> event) {
+        OperationType type = event.getOperationType();
+        if (type == OperationType.UPDATE || type == OperationType.REPLACE || type == OperationType.DELETE) {
+            BsonValue id = event.getDocumentKey() == null ? null : event.getDocumentKey().get("_id");
+            if (id == null) return;
+            String key = id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.isString() ? id.asString().getValue() : null;
+            if (key == null) return;
+            long writtenAt = event.getWallTime() != null ? event.getWallTime().getValue()
+                    : event.getClusterTime() != null ? event.getClusterTime().getTime() * 1000L : 0;
+            cache.invalidate(key, writtenAt);
+        } else if (type == OperationType.DROP || type == OperationType.RENAME || type == OperationType.DROP_DATABASE
+                || type == OperationType.INVALIDATE) {
+            cache.invalidateAll();
+        }
+    }
+
+    private String collection() { return mongo.getCollectionName(Book.class); }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(retryInterval.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.practice.mongoapi.service;
+
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pages over {@code _id}. An empty or absent token starts
+ * before the smallest possible ObjectId.
+ */
+public final class BookCursor {
+    static final String START = "000000000000000000000000";
+
+    private BookCursor() {}
+
+    public static String encode(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) return START;
+        String id;
+        try {
+            id = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+        if (!ObjectId.isValid(id)) throw new InvalidCursorException(cursor);
+        return id;
+    }
+
+    public static class InvalidCursorException extends IllegalArgumentException {
+        public InvalidCursorException(String cursor) { super("Invalid cursor: " + cursor); }
+    }
+}
@@ -0,0 +1,100 @@
+package com.practice.mongoapi.service;
+
+import com.practice.mongoapi.model.Book;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Strong validators derived from {@code Book.version} ({@code "v<version>"}), so a client's cached copy can be checked
+ * against a projected {@code _id}/{@code version} read instead of the full documents. Books written before
+ * {@code version} existed are tagged by {@code updatedAt} ({@code "u<millis>"}) until their next write; books with
+ * neither get no ETag.
+ */
+public final class BookETag {
+    /** The only fields needed to compute a validator. */
+    public static final Set<String> VERSION_FIELDS = Set.of("id", "version", "updatedAt");
+
+    private BookETag() {}
+
+    /**
+     * The fields to load for a response rendered with {@code fields}: those plus {@link #VERSION_FIELDS}, so a sparse
+     * representation still gets its validators ({@code null} = full book). The response filter hides the extras.
+     */
+    public static Set<String> withVersionFields(Set<String> fields) {
+        if (fields == null) return null;
+        Set<String> load = new LinkedHashSet<>(fields);
+        load.addAll(VERSION_FIELDS);
+        return load;
+    }
+
+    /** ETag of one book as rendered with {@code fields} ({@code null} = full book), or {@code null}. */
+    public static String of(Book book, Collection<String> fields) {
+        String tag = tag(book);
+        if (tag == null) return null;
+        return quote(fields == null ? tag : tag + "-" + hash(new TreeSet<>(fields).toString()));
+    }
+
+    /**
+     * ETag of a list response. {@code shape} identifies everything else in the body (page numbers, totals, cursors);
+     * the books contribute only their ids and versions, so a projected page yields the same tag as a full one.
+     */
+    public static String ofList(String shape, List<Book> books, Collection<String> fields) {
+        StringBuilder sb = new StringBuilder(shape).append('|').append(fields == null ? "*" : new TreeSet<>(fields));
+        for (Book b : books) {
+            String tag = tag(b);
+            if (tag == null) return null;
+            sb.append('|').append(b.getId()).append(':').append(tag);
+        }
+        return quote(hash(sb.toString()));
+    }
+
+    /**
+     * {@code If-Match} as a query condition, so the check and the write are one atomic {@code findAndModify}.
+     * {@code null} for {@code *} (any existing book). Strong comparison: weak tags and tags of projected
+     * representations never match, and a header with no usable tag yields a condition nothing satisfies.
+     */
+    public static Criteria precondition(String ifMatch) {
+        if (ifMatch.trim().equals("*")) return null;
+        List<Criteria> any = new ArrayList<>();
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.length() < 4 || !tag.startsWith("\"") || !tag.endsWith("\"")) continue;
+            tag = tag.substring(1, tag.length() - 1);
+            try {
+                if (tag.charAt(0) == 'v') {
+                    any.add(Criteria.where("version").is(Long.parseLong(tag.substring(1))));
+                } else if (tag.charAt(0) == 'u') {
+                    Instant updatedAt = Instant.ofEpochMilli(Long.parseLong(tag.substring(1), 36));
+                    any.add(Criteria.where("version").exists(false).and("updatedAt").is(updatedAt));
+                }
+            } catch (NumberFormatException ignored) {
+                // not one of ours (e.g. a projected "-<hash>" tag): cannot match
+            }
+        }
+        if (any.isEmpty()) return Criteria.where("version").in(List.of());
+        return any.size() == 1 ? any.get(0) : new Criteria().orOperator(any);
+    }
+
+    private static String tag(Book book) {
+        if (book.getVersion() != null) return "v" + book.getVersion();
+        if (book.getUpdatedAt() != null) return "u" + Long.toString(book.getUpdatedAt().toEpochMilli(), 36);
+        return null;
+    }
+
+    private static String quote(String tag) { return "\"" + tag + "\""; }
+
+    private static String hash(String s) { return DigestUtils.md5DigestAsHex(s.getBytes(StandardCharsets.UTF_8)); }
+
+    public static class PreconditionFailedException extends RuntimeException {
+        public PreconditionFailedException(String id) { super("Book " + id + " does not match If-Match"); }
+    }
+}
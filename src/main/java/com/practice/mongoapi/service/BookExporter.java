@@ -0,0 +1,62 @@
+package com.practice.mongoapi.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practice.mongoapi.model.Book;
+import com.practice.mongoapi.model.SearchKeys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Writes books as NDJSON straight from a Mongo cursor in {@code _id} order, so heap use does not grow
+ * with the collection. The {@code id} of the last line received is the checkpoint: pass it back as
+ * {@code after} to resume.
+ */
+@Service
+public class BookExporter {
+    private final MongoTemplate mongo;
+    private final ObjectMapper mapper;
+    private final int defaultBatchSize;
+    private final int maxBatchSize;
+
+    public BookExporter(MongoTemplate mongo, ObjectMapper mapper,
+                        @Value("${books.export.batch-size:1000}") int defaultBatchSize,
+                        @Value("${books.export.max-batch-size:10000}") int maxBatchSize) {
+        this.mongo = mongo;
+        this.mapper = mapper;
+        this.defaultBatchSize = defaultBatchSize;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long export(String author, String tag, Instant updatedSince, String after, Integer batchSize,
+                       OutputStream out) throws IOException {
+        Criteria criteria = Criteria.where("id").gt(after == null ? BookCursor.START : after);
+        if (author != null) criteria.and("authorKey").is(SearchKeys.fold(author));
+        if (tag != null) criteria.and("tags").is(tag);
+        if (updatedSince != null) criteria.and("updatedAt").gte(updatedSince);
+        int batch = batchSize == null ? defaultBatchSize : Math.max(1, Math.min(batchSize, maxBatchSize));
+        Query query = new Query(criteria).with(Sort.by("id")).cursorBatchSize(batch).noCursorTimeout();
+
+        long written = 0;
+        try (Stream<Book> books = mongo.stream(query, Book.class);
+             JsonGenerator json = mapper.getFactory().createGenerator(out)) {
+            // each line ends with our '\n'; the default root separator would add a space before every next book
+            json.setRootValueSeparator(null);
+            for (Book book : (Iterable<Book>) books::iterator) {
+                json.writeObject(book);
+                json.writeRaw('\n');
+                written++;
+            }
+        }
+        return written;
+    }
+}
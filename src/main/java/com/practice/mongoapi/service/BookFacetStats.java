@@ -0,0 +1,252 @@
+package com.practice.mongoapi.service;
+
+import com.practice.mongoapi.dto.BookFacets;
+import com.practice.mongoapi.model.Book;
+import com.practice.mongoapi.model.SearchKeys;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tag counts and a price histogram. Filtered requests run one {@code $facet} aggregation over the matching books
+ * (served by the multikey {@code tags_price} index for a tag filter, {@code author_key_id} for an author).
+ * Unfiltered requests read one {@code book_facets} document that create, update, delete, bulk import and bulk update
+ * adjust with {@code $inc}, so they cost a single point read whatever the catalog size.
+ * <p>
+ * Writes that bypass the app are not counted. The document is rebuilt from an aggregation at startup when it is
+ * missing, when {@code books.facets.price-boundaries} changed, or always with {@code books.facets.rebuild-on-startup}.
+ */
+@Component
+public class BookFacetStats implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(BookFacetStats.class);
+    static final String COLLECTION = "book_facets";
+    private static final String ID = "all";
+
+    private final MongoTemplate mongo;
+    private final boolean materialized;
+    private final boolean rebuildOnStartup;
+    private final double[] boundaries;
+    private final int maxTags;
+
+    public BookFacetStats(MongoTemplate mongo,
+                          @Value("${books.facets.materialized:true}") boolean materialized,
+                          @Value("${books.facets.rebuild-on-startup:false}") boolean rebuildOnStartup,
+                          @Value("${books.facets.price-boundaries:0,10,20,50,100}") double[] boundaries,
+                          @Value("${books.facets.max-tags:50}") int maxTags) {
+        if (boundaries.length == 0 || boundaries[0] != 0) {
+            throw new IllegalArgumentException("books.facets.price-boundaries must start at 0");
+        }
+        for (int i = 1; i < boundaries.length; i++) {
+            if (boundaries[i] <= boundaries[i - 1]) {
+                throw new IllegalArgumentException("books.facets.price-boundaries must be strictly ascending");
+            }
+        }
+        this.mongo = mongo;
+        this.materialized = materialized;
+        this.rebuildOnStartup = rebuildOnStartup;
+        this.boundaries = boundaries;
+        this.maxTags = maxTags;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!materialized) return;
+        Document stats = mongo.findById(ID, Document.class, COLLECTION);
+        if (rebuildOnStartup || stats == null || !boundaryList().equals(stats.getList("boundaries", Double.class))) {
+            rebuild();
+        }
+    }
+
+    /** {@code author} and {@code tag} are optional filters; without either the materialized counts are used. */
+    public BookFacets facets(String author, String tag) {
+        if (author == null && tag == null && materialized) {
+            Document stats = mongo.findById(ID, Document.class, COLLECTION);
+            if (stats != null) return fromStats(stats);
+        }
+        return aggregate(author, tag, maxTags);
+    }
+
+    /** Recomputes the materialized document from the books collection; writes racing with it may be miscounted. */
+    public void rebuild() {
+        BookFacets all = aggregate(null, null, 0);
+        Document tags = new Document();
+        all.getTags().forEach(t -> tags.put(key(t.getTag()), t.getCount()));
+        Document prices = new Document();
+        all.getPrices().forEach(p -> prices.put(bucketKey(p.getMin()), p.getCount()));
+        mongo.save(new Document("_id", ID)
+                .append("total", all.getTotal())
+                .append("tags", tags)
+                .append("prices", prices)
+                .append("boundaries", boundaryList())
+                .append("rebuiltAt", Instant.now()), COLLECTION);
+        log.info("Facet stats rebuilt: {} books, {} tags", all.getTotal(), all.getTags().size());
+    }
+
+    void added(Collection<Book> books) {
+        Map<String, Long> delta = new HashMap<>();
+        books.forEach(b -> count(delta, b.getTags(), b.getPrice(), 1));
+        apply(delta);
+    }
+
+    void removed(Book b) {
+        Map<String, Long> delta = new HashMap<>();
+        count(delta, b.getTags(), b.getPrice(), -1);
+        apply(delta);
+    }
+
+    void changed(List<String> oldTags, double oldPrice, List<String> tags, double price) {
+        Map<String, Long> delta = new HashMap<>();
+        count(delta, oldTags, oldPrice, -1);
+        count(delta, tags, price, 1);
+        delta.remove("total");
+        apply(delta);
+    }
+
+    /** Books read before and after an in-place rewrite; one deleted in between was already counted by its delete. */
+    void rewritten(Collection<Book> before, Collection<Book> after) {
+        Map<String, Long> delta = new HashMap<>();
+        Set<String> kept = new HashSet<>();
+        after.forEach(b -> {
+            kept.add(b.getId());
+            count(delta, b.getTags(), b.getPrice(), 1);
+        });
+        before.stream().filter(b -> kept.contains(b.getId())).forEach(b -> count(delta, b.getTags(), b.getPrice(), -1));
+        delta.remove("total");
+        apply(delta);
+    }
+
+    private void count(Map<String, Long> delta, List<String> tags, double price, long sign) {
+        delta.merge("total", sign, Long::sum);
+        if (tags != null) {
+            for (String tag : tags) {
+                if (tag != null) delta.merge("tags." + key(tag), sign, Long::sum);
+            }
+        }
+        delta.merge("prices." + bucketKey(boundaries[bucket(price)]), sign, Long::sum);
+    }
+
+    private void apply(Map<String, Long> delta) {
+        delta.values().removeIf(v -> v == 0);
+        if (!materialized || delta.isEmpty()) return;
+        Update update = new Update();
+        delta.forEach(update::inc);
+        try {
+            mongo.upsert(Query.query(Criteria.where("_id").is(ID)), update, COLLECTION);
+        } catch (RuntimeException e) {
+            log.warn("Facet stats not updated, unfiltered facets may drift until rebuilt: {}", e.getMessage());
+        }
+    }
+
+    private BookFacets aggregate(String author, String tag, int tagLimit) {
+        Criteria match = new Criteria();
+        if (author != null) match.and("authorKey").is(SearchKeys.fold(author));
+        if (tag != null) match.and("tags").is(tag);
+        List<AggregationOperation> tagOps = new ArrayList<>(List.of(
+                Aggregation.unwind("tags"),
+                Aggregation.match(Criteria.where("tags").ne(null)),
+                Aggregation.group("tags").count().as("count"),
+                Aggregation.sort(Sort.by(Sort.Direction.DESC, "count").and(Sort.by(Sort.Direction.ASC, "_id")))));
+        if (tagLimit > 0) tagOps.add(Aggregation.limit(tagLimit));
+        Object[] bucketBounds = Arrays.stream(boundaries).boxed().toArray();
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(match),
+                Aggregation.facet(tagOps.toArray(AggregationOperation[]::new)).as("tags")
+                        .and(Aggregation.bucket("price")
+                                .withBoundaries(bucketBounds)
+                                .withDefaultBucket(boundaries[boundaries.length - 1])
+                                .andOutputCount().as("count")).as("prices")
+                        .and(Aggregation.count().as("n")).as("total"));
+        Document result = mongo.aggregate(aggregation, mongo.getCollectionName(Book.class), Document.class).getUniqueMappedResult();
+
+        BookFacets facets = new BookFacets();
+        facets.setSource("aggregation");
+        if (result == null) result = new Document();
+        List<Document> total = result.getList("total", Document.class, List.of());
+        facets.setTotal(total.isEmpty() ? 0 : ((Number) total.get(0).get("n")).longValue());
+        for (Document t : result.getList("tags", Document.class, List.of())) {
+            facets.getTags().add(new BookFacets.TagCount(t.getString("_id"), ((Number) t.get("count")).longValue()));
+        }
+        long[] counts = new long[boundaries.length];
+        for (Document p : result.getList("prices", Document.class, List.of())) {
+            counts[bucket(((Number) p.get("_id")).doubleValue())] += ((Number) p.get("count")).longValue();
+        }
+        facets.setPrices(buckets(counts));
+        return facets;
+    }
+
+    private BookFacets fromStats(Document stats) {
+        BookFacets facets = new BookFacets();
+        facets.setSource("stats");
+        facets.setTotal(((Number) stats.getOrDefault("total", 0)).longValue());
+        Document tags = stats.get("tags", new Document());
+        tags.forEach((k, v) -> {
+            long count = ((Number) v).longValue();
+            if (count > 0) facets.getTags().add(new BookFacets.TagCount(unkey(k), count));
+        });
+        facets.getTags().sort(Comparator.comparingLong(BookFacets.TagCount::getCount).reversed()
+                .thenComparing(BookFacets.TagCount::getTag));
+        if (facets.getTags().size() > maxTags) facets.setTags(new ArrayList<>(facets.getTags().subList(0, maxTags)));
+        Document prices = stats.get("prices", new Document());
+        long[] counts = new long[boundaries.length];
+        for (int i = 0; i < boundaries.length; i++) {
+            Object v = prices.get(bucketKey(boundaries[i]));
+            counts[i] = v == null ? 0 : ((Number) v).longValue();
+        }
+        facets.setPrices(buckets(counts));
+        return facets;
+    }
+
+    private List<BookFacets.PriceBucket> buckets(long[] counts) {
+        List<BookFacets.PriceBucket> buckets = new ArrayList<>(boundaries.length);
+        for (int i = 0; i < boundaries.length; i++) {
+            Double max = i + 1 < boundaries.length ? boundaries[i + 1] : null;
+            buckets.add(new BookFacets.PriceBucket(boundaries[i], max, counts[i]));
+        }
+        return buckets;
+    }
+
+    /** Same placement as {@code $bucket} with the last boundary as default: below 0 or above the last goes last. */
+    private int bucket(double price) {
+        int last = boundaries.length - 1;
+        if (price < boundaries[0] || price >= boundaries[last]) return last;
+        int i = Arrays.binarySearch(boundaries, price);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    private List<Double> boundaryList() { return Arrays.stream(boundaries).boxed().toList(); }
+
+    private static String bucketKey(double boundary) { return key(Double.toString(boundary)); }
+
+    /** Tags become field names: escape {@code .} and {@code $}, which Mongo would read as a path or an operator. */
+    static String key(String tag) {
+        if (tag.isEmpty()) return "%";
+        return tag.replace("%", "%25").replace(".", "%2E").replace("$", "%24");
+    }
+
+    static String unkey(String key) {
+        if (key.equals("%")) return "";
+        return key.replace("%2E", ".").replace("%24", "$").replace("%25", "%");
+    }
+}
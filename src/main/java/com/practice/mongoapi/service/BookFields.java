@@ -0,0 +1,28 @@
+package com.practice.mongoapi.service;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/** Parses the {@code ?fields=} sparse fieldset parameter against the public {@code Book} properties. */
+public final class BookFields {
+    public static final Set<String> ALLOWED = Set.of("id", "title", "author", "price", "tags", "createdAt", "updatedAt", "version");
+
+    private BookFields() {}
+
+    /** {@code null} or blank means every field. */
+    public static Set<String> parse(String fields) {
+        if (fields == null || fields.isBlank()) return null;
+        Set<String> selected = new LinkedHashSet<>();
+        for (String f : fields.split(",")) {
+            String name = f.trim();
+            if (name.isEmpty()) continue;
+            if (!ALLOWED.contains(name)) throw new InvalidFieldsException(name);
+            selected.add(name);
+        }
+        return selected.isEmpty() ? null : selected;
+    }
+
+    public static class InvalidFieldsException extends IllegalArgumentException {
+        public InvalidFieldsException(String field) { super("Unknown field: " + field); }
+    }
+}
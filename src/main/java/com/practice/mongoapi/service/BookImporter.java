@@ -0,0 +1,196 @@
+package com.practice.mongoapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.mongodb.bulk.BulkWriteError;
+import com.practice.mongoapi.dto.BookDto;
+import com.practice.mongoapi.dto.BulkImportResult;
+import com.practice.mongoapi.model.Book;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Streams NDJSON books into Mongo with unordered bulk inserts. Only one batch is held in memory,
+ * and a bad or duplicate line is reported without stopping the rest of the upload. A line longer than
+ * {@code books.bulk.max-line-length} characters is skipped unread up to its newline and reported as 413.
+ */
+@Service
+public class BookImporter {
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongo;
+    private final BookFacetStats facets;
+    private final ObjectReader dtoReader;
+    private final Validator validator;
+    private final int batchSize;
+    private final int maxReportedErrors;
+    private final int maxLineLength;
+
+    public BookImporter(MongoTemplate mongo, BookFacetStats facets, ObjectMapper mapper, Validator validator,
+                        @Value("${books.bulk.batch-size:1000}") int batchSize,
+                        @Value("${books.bulk.max-reported-errors:1000}") int maxReportedErrors,
+                        @Value("${books.bulk.max-line-length:65536}") int maxLineLength) {
+        this.mongo = mongo;
+        this.facets = facets;
+        this.dtoReader = mapper.readerFor(BookDto.class);
+        this.validator = validator;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.maxLineLength = maxLineLength;
+    }
+
+    public BulkImportResult importNdjson(InputStream body) throws IOException {
+        BulkImportResult result = new BulkImportResult();
+        List<Book> batch = new ArrayList<>(batchSize);
+        List<Long> batchLines = new ArrayList<>(batchSize);
+        LineReader reader = new LineReader(new InputStreamReader(body, StandardCharsets.UTF_8), maxLineLength);
+        long lineNo = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (reader.tooLong()) {
+                result.setReceived(result.getReceived() + 1);
+                fail(result, lineNo, 413, "Line longer than " + maxLineLength + " characters");
+                continue;
+            }
+            if (line.isBlank()) continue;
+            result.setReceived(result.getReceived() + 1);
+            BookDto dto;
+            try {
+                dto = dtoReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                fail(result, lineNo, 400, "Malformed JSON");
+                continue;
+            }
+            Set<ConstraintViolation<BookDto>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                fail(result, lineNo, 400, violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+                continue;
+            }
+            batch.add(new Book(null, dto.getTitle(), dto.getAuthor(), dto.getPrice(), dto.getTags()));
+            batchLines.add(lineNo);
+            if (batch.size() == batchSize) flush(batch, batchLines, result);
+        }
+        flush(batch, batchLines, result);
+        return result;
+    }
+
+    private void flush(List<Book> batch, List<Long> batchLines, BulkImportResult result) {
+        if (batch.isEmpty()) return;
+        try {
+            int inserted = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class)
+                    .insert(batch).execute().getInsertedCount();
+            result.setInserted(result.getInserted() + inserted);
+            facets.added(batch);
+        } catch (BulkOperationException e) {
+            result.setInserted(result.getInserted() + e.getResult().getInsertedCount());
+            List<Book> insertedBooks = new ArrayList<>(batch);
+            for (BulkWriteError error : e.getErrors()) {
+                insertedBooks.set(error.getIndex(), null);
+                long line = batchLines.get(error.getIndex());
+                if (error.getCode() == DUPLICATE_KEY) {
+                    fail(result, line, 409, "Duplicate book (title+author must be unique).");
+                } else {
+                    fail(result, line, 500, error.getMessage());
+                }
+            }
+            insertedBooks.removeIf(Objects::isNull);
+            facets.added(insertedBooks);
+        }
+        batch.clear();
+        batchLines.clear();
+    }
+
+    private void fail(BulkImportResult result, long line, int status, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            result.getErrors().add(new BulkImportResult.LineError(line, status, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    /**
+     * {@code BufferedReader.readLine()} with a length cap: the characters of an over-long line are dropped as they
+     * are read, so one huge line cannot buffer the whole upload. Such a line comes back empty with {@link #tooLong()}.
+     */
+    static final class LineReader {
+        private final Reader in;
+        private final int maxLength;
+        private final char[] buf = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int pos;
+        private int end;
+        private boolean tooLong;
+
+        LineReader(Reader in, int maxLength) {
+            this.in = in;
+            this.maxLength = maxLength;
+        }
+
+        /** The next line without its {@code \n} or {@code \r\n}, or {@code null} at the end of the input. */
+        String readLine() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean started = false;
+            while (true) {
+                if (pos == end) {
+                    int n = in.read(buf);
+                    if (n < 0) return started ? finish() : null;
+                    pos = 0;
+                    end = n;
+                }
+                started = true;
+                int from = pos;
+                while (pos < end && buf[pos] != '\n') pos++;
+                append(from, pos);
+                if (pos < end) {
+                    pos++;
+                    return finish();
+                }
+            }
+        }
+
+        boolean tooLong() { return tooLong; }
+
+        private void append(int from, int to) {
+            if (tooLong) return;
+            if (line.length() + (to - from) > maxLength + 1) { // + 1 for a trailing \r
+                tooLong = true;
+                line.setLength(0);
+                return;
+            }
+            line.append(buf, from, to - from);
+        }
+
+        private String finish() {
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') line.setLength(--length);
+            if (length > maxLength) {
+                tooLong = true;
+                line.setLength(0);
+            }
+            return line.toString();
+        }
+    }
+}
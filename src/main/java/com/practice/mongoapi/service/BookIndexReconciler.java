@@ -0,0 +1,186 @@
+package com.practice.mongoapi.service;
+
+import com.practice.mongoapi.model.Book;
+import com.practice.mongoapi.repo.BookQueryPlans;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Creates the indexes declared on {@link Book} ({@code @CompoundIndex}, {@code @Indexed}) that are missing from Mongo;
+ * Boot 3 leaves auto-index-creation off. An existing index with the same keys counts as present whatever its name;
+ * one whose name or keys clash with a declared index is reported and left alone. Builds run on a background thread
+ * after startup, so readiness does not wait for them; progress is logged per index and exposed as
+ * {@code books.indexes.pending} / {@code books.indexes.failed}.
+ * <p>
+ * With {@code books.indexes.verify-plans} set, every repository query ({@link BookQueryPlans}) is explained once the
+ * indexes are in place and a {@code COLLSCAN} plan is logged ({@code warn}) or fails startup ({@code fail}, which
+ * also makes the build synchronous and fails on any declared index left unresolved; meant for CI and pre-deploy checks).
+ */
+@Component
+public class BookIndexReconciler implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(BookIndexReconciler.class);
+
+    public enum PlanCheck { OFF, WARN, FAIL }
+
+    private final MongoTemplate mongo;
+    private final boolean reconcileOnStartup;
+    private final PlanCheck planCheck;
+    private volatile int pending = -1;
+    private volatile int failed;
+    private volatile int collscans = -1;
+
+    public BookIndexReconciler(MongoTemplate mongo, MeterRegistry registry,
+                               @Value("${books.indexes.reconcile-on-startup:true}") boolean reconcileOnStartup,
+                               @Value("${books.indexes.verify-plans:off}") PlanCheck planCheck) {
+        this.mongo = mongo;
+        this.reconcileOnStartup = reconcileOnStartup;
+        this.planCheck = planCheck;
+        Gauge.builder("books.indexes.pending", this, r -> r.pending)
+                .description("Declared indexes not yet found or built (-1 = not reconciled yet)").register(registry);
+        Gauge.builder("books.indexes.failed", this, r -> r.failed).register(registry);
+        Gauge.builder("books.indexes.collscan.queries", this, r -> r.collscans)
+                .description("Repository queries planned as a collection scan (-1 = not verified)").register(registry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (planCheck == PlanCheck.FAIL) {
+            if (reconcileOnStartup) {
+                // e.g. a non-unique title+author index where unique is declared: plans look fine, 409s would not
+                List<String> unresolved = reconcile();
+                if (!unresolved.isEmpty()) {
+                    throw new IllegalStateException("Declared indexes missing or clashing with existing ones: " + unresolved);
+                }
+            }
+            Map<String, String> problems = verifyPlans();
+            if (!problems.isEmpty()) {
+                throw new IllegalStateException("Repository queries without a usable index: " + problems);
+            }
+            return;
+        }
+        if (!reconcileOnStartup && planCheck == PlanCheck.OFF) return;
+        Thread worker = new Thread(() -> {
+            try {
+                if (reconcileOnStartup) reconcile();
+                if (planCheck == PlanCheck.WARN) verifyPlans();
+            } catch (RuntimeException e) {
+                log.warn("Index reconciliation failed: {}", e.getMessage());
+            }
+        }, "index-reconciler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Builds the missing declared indexes one at a time; returns the names of those still missing afterwards. */
+    public synchronized List<String> reconcile() {
+        String collection = mongo.getCollectionName(Book.class);
+        List<Document> existing = new ArrayList<>();
+        mongo.getCollection(collection).listIndexes().into(existing);
+
+        List<IndexDefinition> missing = new ArrayList<>();
+        List<String> unresolved = new ArrayList<>();
+        for (IndexDefinition def : declared()) {
+            String name = def.getIndexOptions().getString("name");
+            List<String> keys = keys(def.getIndexKeys());
+            Document sameKeys = existing.stream().filter(i -> keys(i.get("key", Document.class)).equals(keys)).findFirst().orElse(null);
+            Document sameName = existing.stream().filter(i -> Objects.equals(i.getString("name"), name)).findFirst().orElse(null);
+            if (sameKeys != null) {
+                if (unique(sameKeys) != unique(def.getIndexOptions())) {
+                    log.warn("Index {}: {} exists with unique={}, declared unique={}; not changed",
+                            name, sameKeys.getString("name"), unique(sameKeys), unique(def.getIndexOptions()));
+                    unresolved.add(name);
+                }
+            } else if (sameName != null) {
+                log.warn("Index {}: an index of that name exists on {}, declared on {}; not changed",
+                        name, sameName.get("key", Document.class).toJson(), def.getIndexKeys().toJson());
+                unresolved.add(name);
+            } else {
+                missing.add(def);
+            }
+        }
+        pending = missing.size();
+        failed = unresolved.size();
+        if (!missing.isEmpty()) log.info("Building {} missing index(es) on {}", missing.size(), collection);
+
+        for (int i = 0; i < missing.size(); i++) {
+            IndexDefinition def = missing.get(i);
+            String name = def.getIndexOptions().getString("name");
+            log.info("Building index {} {} ({} of {})", name, def.getIndexKeys().toJson(), i + 1, missing.size());
+            long started = System.nanoTime();
+            try {
+                mongo.indexOps(Book.class).ensureIndex(def);
+                log.info("Index {} built in {} ms", name, (System.nanoTime() - started) / 1_000_000);
+            } catch (RuntimeException e) {
+                // e.g. duplicates already in the collection for a unique index
+                log.warn("Index {} not built: {}", name, e.getMessage());
+                unresolved.add(name);
+                failed = unresolved.size();
+            }
+            pending = missing.size() - i - 1;
+        }
+        return unresolved;
+    }
+
+    /** Explains every repository query; returns the ones that scan the collection (or have no sample) with why. */
+    public Map<String, String> verifyPlans() {
+        Map<String, String> problems = new TreeMap<>();
+        Map<String, Query> samples = BookQueryPlans.samples();
+        for (String method : BookQueryPlans.queryMethods()) {
+            if (!samples.containsKey(method)) problems.put(method, "no sample query in BookQueryPlans");
+        }
+        QueryMapper mapper = new QueryMapper(mongo.getConverter());
+        MongoPersistentEntity<?> entity = mongo.getConverter().getMappingContext().getRequiredPersistentEntity(Book.class);
+        samples.forEach((method, query) -> {
+            Document find = new Document("find", mongo.getCollectionName(Book.class))
+                    .append("filter", mapper.getMappedObject(query.getQueryObject(), entity))
+                    .append("sort", mapper.getMappedSort(query.getSortObject(), entity));
+            if (query.getSkip() > 0) find.append("skip", query.getSkip());
+            if (query.isLimited()) find.append("limit", query.getLimit());
+            Document planner = mongo.getDb().runCommand(new Document("explain", find).append("verbosity", "queryPlanner"))
+                    .get("queryPlanner", Document.class);
+            Document winning = planner.get("winningPlan", Document.class);
+            String plan = (winning != null ? winning : planner).toJson();
+            if (plan.contains("COLLSCAN")) problems.put(method, "COLLSCAN for " + find.get("filter", Document.class).toJson());
+        });
+        collscans = (int) problems.values().stream().filter(p -> p.startsWith("COLLSCAN")).count();
+        if (problems.isEmpty()) {
+            log.info("Query plans verified: {} repository queries use an index", samples.size());
+        } else {
+            problems.forEach((method, problem) -> log.warn("Query plan check, {}: {}", method, problem));
+        }
+        return problems;
+    }
+
+    private Iterable<? extends IndexDefinition> declared() {
+        return IndexResolver.create(mongo.getConverter().getMappingContext()).resolveIndexFor(Book.class);
+    }
+
+    /** Key spec as ordered {@code field:direction} pairs; order matters for a compound index, numeric type does not. */
+    private static List<String> keys(Document key) {
+        if (key == null) return List.of();
+        return key.entrySet().stream()
+                .map(e -> e.getKey() + ":" + (e.getValue() instanceof Number n ? String.valueOf(n.intValue()) : e.getValue()))
+                .toList();
+    }
+
+    private static boolean unique(Document options) { return Boolean.TRUE.equals(options.get("unique")); }
+}
@@ -1,59 +1,256 @@
 package com.practice.mongoapi.service;
 
+import com.practice.mongoapi.concurrent.SingleFlight;
 import com.practice.mongoapi.dto.BookDto;
+import com.practice.mongoapi.dto.BookFacets;
+import com.practice.mongoapi.dto.BookPatch;
+import com.practice.mongoapi.dto.CursorPage;
 import com.practice.mongoapi.dto.PriceQuote;
-import com.practice.mongoapi.external.PricingClient;
+import com.practice.mongoapi.dto.QuoteResult;
+import com.practice.mongoapi.external.DiscountCache;
+import com.practice.mongoapi.external.PricingExecutor;
 import com.practice.mongoapi.model.Book;
+import com.practice.mongoapi.model.SearchKeys;
 import com.practice.mongoapi.repo.BookRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "books.service", histogram = true)
 public class BookService {
+    /** Properties a {@code PUT} replaces. */
+    static final Set<String> PUT_FIELDS = Set.of("title", "author", "price", "tags");
+
     private final BookRepository repo;
-    private final PricingClient pricing;
+    private final DiscountCache discounts;
+    private final BookCache books;
+    private final BookFacetStats facets;
+    private final QuoteRefresher storedQuotes;
+    private final PricingExecutor pricingExecutor;
+    private final SingleFlight<String, PriceQuote> inFlightQuotes = new SingleFlight<>();
+    private final int maxPageSize;
 
-    public BookService(BookRepository repo, PricingClient pricing) {
+    public BookService(BookRepository repo, DiscountCache discounts, BookCache books, BookFacetStats facets,
+                       QuoteRefresher storedQuotes, PricingExecutor pricingExecutor,
+                       @Value("${books.page.max-size:100}") int maxPageSize) {
         this.repo = repo;
-        this.pricing = pricing;
+        this.discounts = discounts;
+        this.books = books;
+        this.facets = facets;
+        this.storedQuotes = storedQuotes;
+        this.pricingExecutor = pricingExecutor;
+        this.maxPageSize = maxPageSize;
     }
 
     public Book create(BookDto dto) {
-        Book b = new Book(null, dto.getTitle(), dto.getAuthor(), dto.getPrice(), dto.getTags());
-        return repo.save(b);
+        Book saved = repo.save(toBook(dto));
+        facets.added(List.of(saved));
+        storedQuotes.touched(saved.getId());
+        return saved;
+    }
+
+    /** Served from {@link BookCache}; the returned book is shared, so callers must not modify it. */
+    public Optional<Book> get(String id) { return books.get(id, repo::findById); }
+
+    /** Read methods taking {@code fields} load only those {@code Book} properties; {@code null} loads everything. */
+    public Optional<Book> get(String id, Collection<String> fields) {
+        return fields == null ? get(id) : repo.findById(id, fields);
+    }
+
+    /** Just {@code id}, {@code version} and {@code updatedAt}, for conditional requests: from the near-cache if present, else a projected read. */
+    public Optional<Book> version(String id) {
+        Optional<Book> cached = books.peek(id);
+        return cached.isPresent() ? cached : repo.findById(id, BookETag.VERSION_FIELDS);
+    }
+
+    public Page<Book> list(int page, int size, Collection<String> fields) {
+        return repo.findAll(PageRequest.of(page, clamp(size), Sort.by("id")), fields);
+    }
+
+    public CursorPage<Book> list(String cursor, int size, Collection<String> fields) {
+        return toCursorPage(repo.findAfter(BookCursor.decode(cursor), keyset(size), fields));
     }
 
-    public Optional<Book> get(String id) { return repo.findById(id); }
+    public Book update(String id, BookDto dto) { return update(id, dto, null); }
+
+    /** {@code ifMatch}: an {@code If-Match} header value the stored book must match, or {@code null}. */
+    public Book update(String id, BookDto dto, String ifMatch) {
+        return write(id, toBook(dto), PUT_FIELDS, ifMatch);
+    }
+
+    /** Sets only the fields present in {@code patch}; same single round trip and {@code ifMatch} as {@link #update}. */
+    public Book patch(String id, BookPatch patch, String ifMatch) {
+        Book values = new Book();
+        Set<String> props = new LinkedHashSet<>();
+        if (patch.getTitle() != null) { values.setTitle(patch.getTitle()); props.add("title"); }
+        if (patch.getAuthor() != null) { values.setAuthor(patch.getAuthor()); props.add("author"); }
+        if (patch.getPrice() != null) { values.setPrice(patch.getPrice()); props.add("price"); }
+        if (patch.getTags() != null) { values.setTags(patch.getTags()); props.add("tags"); }
+        return write(id, values, props, ifMatch);
+    }
+
+    /**
+     * One conditional {@code findAndModify}: no read before the write (the {@code If-Match} check is part of the
+     * query) and none after (the result is the returned pre-image with the same changes applied). Only when nothing
+     * matched is there a second read, to tell a stale {@code If-Match} from a missing book.
+     */
+    private Book write(String id, Book values, Set<String> props, String ifMatch) {
+        Criteria precondition = ifMatch == null ? null : BookETag.precondition(ifMatch);
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Map<String, Object> changes = changes(values, props);
+        changes.put("updatedAt", now);
+        Book b = repo.findAndSet(id, changes, precondition).orElseThrow(() -> precondition != null && repo.existsById(id)
+                ? new BookETag.PreconditionFailedException(id)
+                : new IllegalArgumentException("Book not found: " + id));
+        books.invalidate(id);
+        discounts.invalidate(b);
+        List<String> oldTags = b.getTags();
+        double oldPrice = b.getPrice();
+        apply(values, props, b);
+        b.setUpdatedAt(now);
+        b.setVersion(b.getVersion() == null ? 1 : b.getVersion() + 1);
+        if (props.contains("tags") || props.contains("price")) facets.changed(oldTags, oldPrice, b.getTags(), b.getPrice());
+        storedQuotes.touched(id);
+        return b;
+    }
+
+    public void delete(String id) {
+        repo.findAndDelete(id).ifPresent(b -> {
+            discounts.invalidate(b);
+            facets.removed(b);
+            storedQuotes.removed(id);
+        });
+        books.invalidate(id);
+    }
+
+    /** Blank filters are ignored; with none, served from the materialized stats in one read. */
+    public BookFacets facets(String author, String tag) {
+        return facets.facets(StringUtils.hasText(author) ? author : null, StringUtils.hasText(tag) ? tag : null);
+    }
 
-    public Page<Book> list(int page, int size) {
-        return repo.findAll(PageRequest.of(page, size));
+    /**
+     * First {@code books.page.max-size} matches; use the cursor variant to read further. The stream is lazy: the
+     * query runs when it is consumed (e.g. element by element by the response serializer), which also closes it.
+     */
+    public Stream<Book> findByAuthor(String author, Collection<String> fields) {
+        return lazy(() -> repo.streamByAuthorKeyAfter(SearchKeys.fold(author), BookCursor.START, keyset(maxPageSize), fields));
     }
 
-    public Book update(String id, BookDto dto) {
-        Book b = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Book not found: " + id));
-        b.setTitle(dto.getTitle());
-        b.setAuthor(dto.getAuthor());
-        b.setPrice(dto.getPrice());
-        b.setTags(dto.getTags());
-        return repo.save(b);
+    public Stream<Book> search(String q, Collection<String> fields) {
+        return lazy(() -> repo.streamTitle(q, BookCursor.START, keyset(maxPageSize), fields));
     }
 
-    public void delete(String id) { repo.deleteById(id); }
+    public CursorPage<Book> findByAuthor(String author, String cursor, int size, Collection<String> fields) {
+        return toCursorPage(repo.findByAuthorKeyAfter(SearchKeys.fold(author), BookCursor.decode(cursor), keyset(size), fields));
+    }
 
-    public List<Book> findByAuthor(String author) { return repo.findByAuthorIgnoreCase(author); }
-    public List<Book> search(String q) { return repo.findByTitleContainingIgnoreCase(q); }
+    public CursorPage<Book> search(String q, String cursor, int size, Collection<String> fields) {
+        return toCursorPage(repo.searchTitle(q, BookCursor.decode(cursor), keyset(size), fields));
+    }
 
+    /**
+     * Concurrent quotes for the same id share one {@code findById} and one pricing lookup. A fresh pre-computed quote
+     * ({@link QuoteRefresher}) is served without calling the pricing service.
+     */
     public PriceQuote quotePrice(String id) {
-        Book b = repo.findById(id).orElseThrow(() -> new IllegalArgumentException("Book not found: " + id));
-        double discount = pricing.fetchDiscountPct(b.getTitle(), b.getAuthor(), b.getPrice());
+        return inFlightQuotes.run(id, () -> {
+            Book b = get(id).orElseThrow(() -> new IllegalArgumentException("Book not found: " + id));
+            return storedQuotes.stored(b).orElseGet(() -> quote(b));
+        });
+    }
+
+    /** Quotes every id with one Mongo lookup (two with stored quotes); pricing calls fan out on {@link PricingExecutor}. */
+    public List<QuoteResult> quotePrices(List<String> ids) {
+        Map<String, Book> books = new HashMap<>();
+        repo.findAllById(new LinkedHashSet<>(ids)).forEach(b -> books.put(b.getId(), b));
+        Map<String, PriceQuote> stored = storedQuotes.stored(books.values());
+        List<CompletableFuture<QuoteResult>> results = ids.stream()
+                .map(id -> {
+                    Book b = books.get(id);
+                    if (b == null) return CompletableFuture.completedFuture(QuoteResult.notFound(id));
+                    if (stored.containsKey(id)) return CompletableFuture.completedFuture(QuoteResult.ok(stored.get(id)));
+                    return pricingExecutor.supply(() -> QuoteResult.ok(quote(b)))
+                            .exceptionally(e -> QuoteResult.pricingError(id));
+                })
+                .toList();
+        return results.stream().map(CompletableFuture::join).toList();
+    }
+
+    private PriceQuote quote(Book b) {
+        return toQuote(b, discounts.discountPct(b.getTitle(), b.getAuthor(), b.getPrice()));
+    }
+
+    /** Quote arithmetic shared by the servlet and reactive APIs. */
+    public static PriceQuote toQuote(Book b, double discount) {
         double finalPrice = BigDecimal.valueOf(b.getPrice() * (1 - discount))
                 .setScale(2, RoundingMode.HALF_UP).doubleValue();
         return new PriceQuote(b.getId(), b.getPrice(), discount, finalPrice);
     }
+
+    static Book toBook(BookDto dto) {
+        return new Book(null, dto.getTitle(), dto.getAuthor(), dto.getPrice(), dto.getTags());
+    }
+
+    /** The {@code $set} document for {@code props} of {@code values}, derived search keys included. */
+    static Map<String, Object> changes(Book values, Set<String> props) {
+        Map<String, Object> set = new LinkedHashMap<>();
+        if (props.contains("title")) {
+            set.put("title", values.getTitle());
+            set.put("titleKey", values.getTitleKey());
+            set.put("titleGrams", values.getTitleGrams());
+        }
+        if (props.contains("author")) {
+            set.put("author", values.getAuthor());
+            set.put("authorKey", values.getAuthorKey());
+        }
+        if (props.contains("price")) set.put("price", values.getPrice());
+        if (props.contains("tags")) set.put("tags", values.getTags());
+        return set;
+    }
+
+    static void apply(Book values, Set<String> props, Book b) {
+        if (props.contains("title")) b.setTitle(values.getTitle());
+        if (props.contains("author")) b.setAuthor(values.getAuthor());
+        if (props.contains("price")) b.setPrice(values.getPrice());
+        if (props.contains("tags")) b.setTags(values.getTags());
+    }
+
+    /** Opens the cursor on first consumption, so a response that is never written leaves nothing open. */
+    private static Stream<Book> lazy(Supplier<Stream<Book>> cursor) {
+        return Stream.of(cursor).flatMap(Supplier::get);
+    }
+
+    private int clamp(int size) { return Math.max(1, Math.min(size, maxPageSize)); }
+
+    private Pageable keyset(int size) { return PageRequest.of(0, clamp(size), Sort.by("id")); }
+
+    private static CursorPage<Book> toCursorPage(Slice<Book> slice) {
+        List<Book> content = slice.getContent();
+        String next = slice.hasNext() ? BookCursor.encode(content.get(content.size() - 1).getId()) : null;
+        return new CursorPage<>(content, content.size(), slice.hasNext(), next);
+    }
 }
@@ -0,0 +1,306 @@
+package com.practice.mongoapi.service;
+
+import com.practice.mongoapi.dto.PriceQuote;
+import com.practice.mongoapi.external.DiscountCache;
+import com.practice.mongoapi.external.PricingClient;
+import com.practice.mongoapi.model.Book;
+import com.practice.mongoapi.repo.BookRepository;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Opt-in ({@code books.quotes.enabled}) pre-computed quotes: a background worker walks {@code books} by {@code _id} in
+ * batches and stores each book's discount and final price in the {@code quotes} collection, so
+ * {@code price-with-discount} can answer without calling the pricing service. A stored quote is served only while
+ * younger than {@code max-staleness} and only for the title, author and price it was computed for.
+ * <p>
+ * Books created or updated through {@link BookService} are re-quoted before the sweep continues. Pricing calls run at
+ * most {@code concurrency} at a time and {@code rate-per-second} overall, on threads of their own. Every enabled node
+ * sweeps the whole catalog, so enable it on one instance per cluster.
+ */
+@Component
+public class QuoteRefresher implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(QuoteRefresher.class);
+    static final String COLLECTION = "quotes";
+    private static final Set<String> PRICED_FIELDS = Set.of("id", "title", "author", "price");
+
+    private final BookRepository repo;
+    private final MongoTemplate mongo;
+    private final PricingClient pricing;
+    private final DiscountCache discounts;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int concurrency;
+    private final Duration refreshAfter;
+    private final Duration maxStaleness;
+    private final Duration sweepInterval;
+    private final RateLimiter rateLimiter;
+    // concurrent rather than monitor-guarded: touched() runs on request threads, virtual ones must not pin
+    private final Set<String> touched = ConcurrentHashMap.newKeySet();
+    private final Counter refreshed;
+    private final Counter failed;
+    private final Counter storedHits;
+    private final Counter storedMisses;
+    private volatile Thread worker;
+    private ThreadPoolTaskExecutor pool;
+
+    public QuoteRefresher(BookRepository repo, MongoTemplate mongo, PricingClient pricing, DiscountCache discounts,
+                          MeterRegistry registry,
+                          @Value("${books.quotes.enabled:false}") boolean enabled,
+                          @Value("${books.quotes.batch-size:200}") int batchSize,
+                          @Value("${books.quotes.concurrency:4}") int concurrency,
+                          @Value("${books.quotes.rate-per-second:20}") int ratePerSecond,
+                          @Value("${books.quotes.refresh-after:10m}") Duration refreshAfter,
+                          @Value("${books.quotes.max-staleness:15m}") Duration maxStaleness,
+                          @Value("${books.quotes.sweep-interval:1m}") Duration sweepInterval) {
+        this.repo = repo;
+        this.mongo = mongo;
+        this.pricing = pricing;
+        this.discounts = discounts;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.refreshAfter = refreshAfter;
+        this.maxStaleness = maxStaleness;
+        this.sweepInterval = sweepInterval;
+        this.rateLimiter = RateLimiter.of("quote-refresh", RateLimiterConfig.custom()
+                .limitForPeriod(ratePerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ofSeconds(5))
+                .build());
+        this.refreshed = Counter.builder("books.quotes.refreshed").tag("outcome", "ok").register(registry);
+        this.failed = Counter.builder("books.quotes.refreshed").tag("outcome", "error").register(registry);
+        this.storedHits = Counter.builder("books.quotes.stored").tag("result", "hit").register(registry);
+        this.storedMisses = Counter.builder("books.quotes.stored").tag("result", "miss").register(registry);
+        Gauge.builder("books.quotes.pending", this, r -> r.pending()).register(registry);
+    }
+
+    /** The stored quote for {@code b}, if fresh and computed for its current title, author and price. */
+    public Optional<PriceQuote> stored(Book b) {
+        if (!enabled) return Optional.empty();
+        return Optional.ofNullable(stored(List.of(b)).get(b.getId()));
+    }
+
+    /** Stored quotes by book id, with one query for all of {@code books}; unusable quotes are left out. */
+    public Map<String, PriceQuote> stored(Collection<Book> books) {
+        Map<String, PriceQuote> quotes = new HashMap<>();
+        if (!enabled || books.isEmpty()) return quotes;
+        Map<String, Document> docs = load(books);
+        for (Book b : books) {
+            PriceQuote quote = usable(docs.get(b.getId()), b);
+            if (quote != null) quotes.put(b.getId(), quote);
+        }
+        return quotes;
+    }
+
+    /** Whether stored quotes are kept and served at all ({@code books.quotes.enabled}). */
+    public boolean enabled() { return enabled; }
+
+    /**
+     * {@code q}, a document of the quotes collection loaded by the caller (the v2 path reads it reactively), as the
+     * quote for {@code b}; {@code null} when missing, stale or computed for another title, author or price.
+     */
+    PriceQuote usable(Document q, Book b) {
+        if (q == null || !quotes(q, b) || !quotedAt(q).isAfter(Instant.now().minus(maxStaleness))) {
+            storedMisses.increment();
+            return null;
+        }
+        storedHits.increment();
+        return new PriceQuote(b.getId(), b.getPrice(), q.getDouble("discountPct"), q.getDouble("finalPrice"));
+    }
+
+    /** Re-quote this book ahead of the sweep: its title, author or price may have changed. */
+    public void touched(String id) {
+        if (!enabled) return;
+        touched.add(id);
+        Thread t = worker;
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    public void removed(String id) {
+        if (enabled) mongo.remove(Query.query(Criteria.where("_id").is(id)), COLLECTION);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) return;
+        pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(concurrency);
+        pool.setMaxPoolSize(concurrency);
+        pool.setThreadNamePrefix("quote-refresh-");
+        pool.setDaemon(true);
+        pool.initialize();
+        worker = new Thread(this::run, "quote-refresher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread t = worker;
+        worker = null;
+        if (t != null) t.interrupt();
+        if (pool != null) pool.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() { return worker != null; }
+
+    private void run() {
+        String sweepAfter = BookCursor.START;
+        int failures = 0;
+        while (worker == Thread.currentThread()) {
+            try {
+                List<Book> batch;
+                Set<String> priority = drainTouched();
+                if (!priority.isEmpty()) {
+                    batch = repo.findAllById(priority);
+                } else {
+                    batch = repo.findAfter(sweepAfter, PageRequest.of(0, batchSize, Sort.by("id")), PRICED_FIELDS).getContent();
+                    if (batch.isEmpty()) {
+                        sweepAfter = BookCursor.START;
+                        if (!pause(sweepInterval, true)) break;
+                        continue;
+                    }
+                    sweepAfter = batch.get(batch.size() - 1).getId();
+                }
+                if (refresh(batch)) {
+                    failures = 0;
+                } else {
+                    if (failures++ == 0) log.warn("Quote refresh failing, pricing service unavailable; retrying every {}", sweepInterval);
+                    if (!pause(sweepInterval, false)) break;
+                }
+            } catch (RuntimeException e) {
+                if (worker != Thread.currentThread()) break;
+                if (failures++ == 0) log.warn("Quote refresh failed: {}", e.getMessage());
+                if (!pause(sweepInterval, false)) break;
+            }
+        }
+    }
+
+    /** Re-quotes the books in {@code batch} whose stored quote is missing, outdated or due; false if none succeeded. */
+    private boolean refresh(List<Book> batch) {
+        Map<String, Document> stored = load(batch);
+        Instant due = Instant.now().minus(refreshAfter);
+        List<CompletableFuture<PriceQuote>> calls = new ArrayList<>();
+        List<Book> priced = new ArrayList<>();
+        for (Book b : batch) {
+            Document q = stored.get(b.getId());
+            if (q != null && quotes(q, b) && quotedAt(q).isAfter(due)) continue;
+            RateLimiter.waitForPermission(rateLimiter);
+            priced.add(b);
+            calls.add(CompletableFuture.supplyAsync(() -> quote(b), pool).exceptionally(e -> null));
+        }
+        if (calls.isEmpty()) return true;
+        BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+        int ok = 0;
+        for (int i = 0; i < calls.size(); i++) {
+            PriceQuote quote = calls.get(i).join();
+            if (quote == null) {
+                failed.increment();
+                continue;
+            }
+            Book b = priced.get(i);
+            bulk.upsert(Query.query(Criteria.where("_id").is(b.getId())), new Update()
+                    .set("title", b.getTitle())
+                    .set("author", b.getAuthor())
+                    .set("price", b.getPrice())
+                    .set("discountPct", quote.getDiscountPct())
+                    .set("finalPrice", quote.getFinalPrice())
+                    .set("quotedAt", Instant.now()));
+            ok++;
+        }
+        if (ok > 0) bulk.execute();
+        refreshed.increment(ok);
+        return ok > 0;
+    }
+
+    private PriceQuote quote(Book b) {
+        double discount = pricing.fetchDiscountPct(b.getTitle(), b.getAuthor(), b.getPrice());
+        discounts.put(b.getTitle(), b.getAuthor(), b.getPrice(), discount);
+        return BookService.toQuote(b, discount);
+    }
+
+    private Map<String, Document> load(Collection<Book> books) {
+        List<String> ids = books.stream().map(Book::getId).toList();
+        Map<String, Document> docs = new HashMap<>();
+        for (Document d : mongo.find(Query.query(Criteria.where("_id").in(ids)), Document.class, COLLECTION)) {
+            docs.put(String.valueOf(d.get("_id")), d);
+        }
+        return docs;
+    }
+
+    /** Whether {@code q} was computed for what {@code b} is now (the same inputs the pricing service sees). */
+    private static boolean quotes(Document q, Book b) {
+        return Objects.equals(q.getString("title"), b.getTitle())
+                && Objects.equals(q.getString("author"), b.getAuthor())
+                && q.getDouble("price") == b.getPrice();
+    }
+
+    private static Instant quotedAt(Document q) { return q.getDate("quotedAt").toInstant(); }
+
+    private Set<String> drainTouched() {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Iterator<String> it = touched.iterator(); it.hasNext() && ids.size() < batchSize; ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        return ids;
+    }
+
+    private int pending() { return touched.size(); }
+
+    /** Sleeps up to {@code d}, waking early for touched books if {@code wakeOnTouch}; false once interrupted. */
+    private boolean pause(Duration d, boolean wakeOnTouch) {
+        if (!wakeOnTouch) {
+            try {
+                Thread.sleep(d.toMillis());
+                return true;
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        // parked until touched() unparks the worker; loops over spurious wakeups and permits left from earlier touches
+        long deadline = System.nanoTime() + d.toNanos();
+        while (touched.isEmpty()) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) return true;
+            LockSupport.parkNanos(this, left);
+            if (Thread.interrupted()) return false;
+        }
+        return true;
+    }
+}
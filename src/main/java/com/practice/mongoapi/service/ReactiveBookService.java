@@ -0,0 +1,72 @@
+package com.practice.mongoapi.service;
+
+import com.practice.mongoapi.dto.PriceQuote;
+import com.practice.mongoapi.external.DiscountCache;
+import com.practice.mongoapi.external.ReactivePricingClient;
+import com.practice.mongoapi.model.Book;
+import com.practice.mongoapi.model.SearchKeys;
+import com.practice.mongoapi.repo.ReactiveBookRepository;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * Read and quote paths of {@link BookService} on the reactive driver and {@link ReactivePricingClient}.
+ * Results are identical to v1; discounts share the same {@link DiscountCache}, and fresh quotes stored by
+ * {@link QuoteRefresher} are served as on v1, read from the quotes collection without blocking.
+ */
+@Service
+public class ReactiveBookService {
+    private static final Sort BY_ID = Sort.by("id");
+
+    private final ReactiveBookRepository repo;
+    private final ReactivePricingClient pricing;
+    private final DiscountCache discounts;
+    private final QuoteRefresher storedQuotes;
+    private final ReactiveMongoTemplate mongo;
+
+    public ReactiveBookService(ReactiveBookRepository repo, ReactivePricingClient pricing, DiscountCache discounts,
+                               QuoteRefresher storedQuotes, ReactiveMongoTemplate mongo) {
+        this.repo = repo;
+        this.pricing = pricing;
+        this.discounts = discounts;
+        this.storedQuotes = storedQuotes;
+        this.mongo = mongo;
+    }
+
+    public Mono<Book> get(String id) { return repo.findById(id); }
+
+    public Flux<Book> list() { return repo.findAll(BY_ID); }
+
+    public Flux<Book> findByAuthor(String author) { return repo.findByAuthorKey(SearchKeys.fold(author)); }
+
+    public Flux<Book> search(String q) { return repo.searchTitle(q); }
+
+    public Mono<PriceQuote> quotePrice(String id) {
+        return repo.findById(id)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Book not found: " + id)))
+                .flatMap(b -> stored(b).switchIfEmpty(Mono.defer(() -> discount(b).map(d -> BookService.toQuote(b, d)))));
+    }
+
+    private Mono<PriceQuote> stored(Book b) {
+        if (!storedQuotes.enabled()) return Mono.empty();
+        return mongo.findOne(Query.query(Criteria.where("_id").is(b.getId())), Document.class, QuoteRefresher.COLLECTION)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty()) // a missing quote counts as a miss, as on v1
+                .mapNotNull(q -> storedQuotes.usable(q.orElse(null), b));
+    }
+
+    private Mono<Double> discount(Book b) {
+        Double cached = discounts.peek(b.getTitle(), b.getAuthor(), b.getPrice());
+        if (cached != null) return Mono.just(cached);
+        return pricing.fetchDiscountPct(b.getTitle(), b.getAuthor(), b.getPrice())
+                .doOnNext(d -> discounts.put(b.getTitle(), b.getAuthor(), b.getPrice(), d));
+    }
+}
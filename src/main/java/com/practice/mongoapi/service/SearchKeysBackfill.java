@@ -0,0 +1,72 @@
+package com.practice.mongoapi.service;
+
+import com.practice.mongoapi.model.Book;
+import com.practice.mongoapi.model.SearchKeys;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+/**
+ * Fills {@code authorKey}/{@code titleKey}/{@code titleGrams} on books written before those fields existed.
+ * Only documents without {@code authorKey} are touched, so re-running is cheap. The search indexes themselves are
+ * built by {@link BookIndexReconciler}.
+ */
+@Component
+public class SearchKeysBackfill implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(SearchKeysBackfill.class);
+
+    private final MongoTemplate mongo;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public SearchKeysBackfill(MongoTemplate mongo,
+                              @Value("${books.search.backfill-on-startup:true}") boolean enabled,
+                              @Value("${books.search.backfill-batch-size:500}") int batchSize) {
+        this.mongo = mongo;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) backfill();
+    }
+
+    public long backfill() {
+        Query missing = new Query(Criteria.where("authorKey").exists(false)).cursorBatchSize(batchSize);
+        missing.fields().include("title", "author");
+        long updated = 0;
+        BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class);
+        int pending = 0;
+        try (Stream<Document> docs = mongo.stream(missing, Document.class, mongo.getCollectionName(Book.class))) {
+            for (Document doc : (Iterable<Document>) docs::iterator) {
+                String titleKey = SearchKeys.fold(doc.getString("title"));
+                Update set = new Update()
+                        .set("authorKey", SearchKeys.fold(doc.getString("author")))
+                        .set("titleKey", titleKey)
+                        .set("titleGrams", SearchKeys.titleGrams(titleKey));
+                bulk.updateOne(Query.query(Criteria.where("_id").is(doc.get("_id"))), set);
+                if (++pending == batchSize) {
+                    updated += bulk.execute().getModifiedCount();
+                    log.info("Search key backfill: {} books updated", updated);
+                    bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class);
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) updated += bulk.execute().getModifiedCount();
+        if (updated > 0) log.info("Search key backfill finished: {} books updated", updated);
+        return updated;
+    }
+}
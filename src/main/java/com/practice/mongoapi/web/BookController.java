@@ -1,26 +1,61 @@
 package com.practice.mongoapi.web;
 
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.practice.mongoapi.dto.BatchQuoteRequest;
 import com.practice.mongoapi.dto.BookDto;
+import com.practice.mongoapi.dto.BookFacets;
+import com.practice.mongoapi.dto.BookPatch;
+import com.practice.mongoapi.dto.BulkImportResult;
+import com.practice.mongoapi.dto.BulkUpdateRequest;
+import com.practice.mongoapi.dto.BulkUpdateResult;
+import com.practice.mongoapi.dto.CursorPage;
 import com.practice.mongoapi.dto.PriceQuote;
+import com.practice.mongoapi.dto.QuoteResult;
 import com.practice.mongoapi.model.Book;
+import com.practice.mongoapi.service.BookBulkUpdater;
+import com.practice.mongoapi.service.BookCursor;
+import com.practice.mongoapi.service.BookETag;
+import com.practice.mongoapi.service.BookExporter;
+import com.practice.mongoapi.service.BookFields;
+import com.practice.mongoapi.service.BookImporter;
 import com.practice.mongoapi.service.BookService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.bson.types.ObjectId;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/books")
 public class BookController {
 
     private final BookService service;
+    private final BookImporter importer;
+    private final BookExporter exporter;
+    private final BookBulkUpdater bulkUpdater;
 
-    public BookController(BookService service) {
+    public BookController(BookService service, BookImporter importer, BookExporter exporter, BookBulkUpdater bulkUpdater) {
         this.service = service;
+        this.importer = importer;
+        this.exporter = exporter;
+        this.bulkUpdater = bulkUpdater;
     }
 
     @PostMapping
@@ -33,26 +68,91 @@ public class BookController {
         }
     }
 
+    /** One {@link BookDto} per line; the body is read as a stream, never buffered whole. */
+    @PostMapping(path = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BulkImportResult bulkImport(InputStream body) throws IOException {
+        return importer.importNdjson(body);
+    }
+
+    /** Reprices and/or retags every book matching the filter server-side, in one or a few update commands. */
+    @PostMapping("/bulk-update")
+    public BulkUpdateResult bulkUpdate(@RequestBody @Valid BulkUpdateRequest req) {
+        return bulkUpdater.update(req);
+    }
+
+    /** Streams the catalog as NDJSON; resume an interrupted export with {@code after} = last id received. */
+    @GetMapping("/export")
+    public void export(@RequestParam(required = false) String author,
+                       @RequestParam(required = false) String tag,
+                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant updatedSince,
+                       @RequestParam(required = false) String after,
+                       @RequestParam(required = false) Integer batchSize,
+                       HttpServletResponse response) throws IOException {
+        if (after != null && !ObjectId.isValid(after)) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Invalid after id");
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        exporter.export(author, tag, updatedSince, after, batchSize, response.getOutputStream());
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<?> get(@PathVariable String id) {
-        return service.get(id)
-                .<ResponseEntity<?>>map(ResponseEntity::ok)
+    public ResponseEntity<?> get(@PathVariable String id, @RequestParam(required = false) String fields,
+                                 WebRequest request) {
+        Set<String> selected = BookFields.parse(fields);
+        if (isConditional(request)) {
+            Optional<Book> version = service.version(id);
+            if (version.isPresent() && notModified(request, BookETag.of(version.get(), selected), version.get())) return null;
+        }
+        return service.get(id, BookETag.withVersionFields(selected))
+                .<ResponseEntity<?>>map(b -> ResponseEntity.ok()
+                        .headers(validators(BookETag.of(b, selected), b.getUpdatedAt()))
+                        .body(project(b, selected)))
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Not found"));
     }
 
+    /** ETag only: a page can change by books leaving it, which no single updatedAt reflects. */
     @GetMapping
-    public Page<Book> list(@RequestParam(defaultValue = "0") int page,
-                           @RequestParam(defaultValue = "10") int size) {
-        return service.list(page, size);
+    public ResponseEntity<?> list(@RequestParam(defaultValue = "0") int page,
+                                  @RequestParam(defaultValue = "10") int size,
+                                  @RequestParam(required = false) String cursor,
+                                  @RequestParam(required = false) String fields,
+                                  WebRequest request) {
+        Set<String> selected = BookFields.parse(fields);
+        if (cursor != null) {
+            if (isConditional(request)
+                    && request.checkNotModified(etag(service.list(cursor, size, BookETag.VERSION_FIELDS), selected))) return null;
+            CursorPage<Book> books = service.list(cursor, size, BookETag.withVersionFields(selected));
+            return ResponseEntity.ok().headers(validators(etag(books, selected), null)).body(project(books, selected));
+        }
+        if (isConditional(request)
+                && request.checkNotModified(etag(service.list(page, size, BookETag.VERSION_FIELDS), selected))) return null;
+        Page<Book> books = service.list(page, size, BookETag.withVersionFields(selected));
+        return ResponseEntity.ok().headers(validators(etag(books, selected), null)).body(project(books, selected));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<?> update(@PathVariable String id, @RequestBody @Valid BookDto dto) {
+    public ResponseEntity<?> update(@PathVariable String id, @RequestBody @Valid BookDto dto,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return write(() -> service.update(id, dto, ifMatch));
+    }
+
+    /** Sets only the supplied fields; {@code null} means "unchanged". */
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patch(@PathVariable String id, @RequestBody @Valid BookPatch patch,
+                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (patch.isEmpty()) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Nothing to update");
+        return write(() -> service.patch(id, patch, ifMatch));
+    }
+
+    private ResponseEntity<?> write(Supplier<Book> write) {
         try {
-            Book updated = service.update(id, dto);
-            return ResponseEntity.ok(updated);
+            Book updated = write.get();
+            return ResponseEntity.ok().headers(validators(BookETag.of(updated, null), updated.getUpdatedAt())).body(updated);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Not found");
+        } catch (BookETag.PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("Book has changed (If-Match)");
         } catch (DuplicateKeyException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body("Duplicate book (title+author must be unique).");
         }
@@ -65,10 +165,30 @@ public class BookController {
     }
 
     @GetMapping("/by-author")
-    public List<Book> byAuthor(@RequestParam String author) { return service.findByAuthor(author); }
+    public ResponseEntity<?> byAuthor(@RequestParam String author,
+                                      @RequestParam(defaultValue = "10") int size,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) String fields) {
+        Set<String> selected = BookFields.parse(fields);
+        if (cursor != null) return ResponseEntity.ok(project(service.findByAuthor(author, cursor, size, selected), selected));
+        return ResponseEntity.ok(project(service.findByAuthor(author, selected), selected));
+    }
 
     @GetMapping("/search")
-    public List<Book> search(@RequestParam String q) { return service.search(q); }
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(defaultValue = "10") int size,
+                                    @RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) String fields) {
+        Set<String> selected = BookFields.parse(fields);
+        if (cursor != null) return ResponseEntity.ok(project(service.search(q, cursor, size, selected), selected));
+        return ResponseEntity.ok(project(service.search(q, selected), selected));
+    }
+
+    /** Counts per tag and price bucket, optionally for one author and/or tag. */
+    @GetMapping("/facets")
+    public BookFacets facets(@RequestParam(required = false) String author, @RequestParam(required = false) String tag) {
+        return service.facets(author, tag);
+    }
 
     @GetMapping("/{id}/price-with-discount")
     public ResponseEntity<?> priceWithDiscount(@PathVariable String id) {
@@ -81,4 +201,59 @@ public class BookController {
             return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body("Pricing service error");
         }
     }
+
+    @PostMapping("/price-with-discount")
+    public List<QuoteResult> priceWithDiscountBatch(@RequestBody @Valid BatchQuoteRequest req) {
+        return service.quotePrices(req.getIds());
+    }
+
+    @ExceptionHandler(BookBulkUpdater.InvalidBulkUpdateException.class)
+    public ResponseEntity<String> invalidBulkUpdate(BookBulkUpdater.InvalidBulkUpdateException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+
+    @ExceptionHandler(BookFields.InvalidFieldsException.class)
+    public ResponseEntity<String> invalidFields(BookFields.InvalidFieldsException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+
+    private static boolean isConditional(WebRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    /** Answers 304 (already committed on the response) when the client's copy is current. */
+    private static boolean notModified(WebRequest request, String etag, Book version) {
+        if (etag == null) return false;
+        return request.checkNotModified(etag, version.getUpdatedAt().toEpochMilli());
+    }
+
+    private static HttpHeaders validators(String etag, Instant lastModified) {
+        HttpHeaders headers = new HttpHeaders();
+        if (etag != null) headers.setETag(etag);
+        if (lastModified != null) headers.setLastModified(lastModified);
+        return headers;
+    }
+
+    private static String etag(Page<Book> page, Set<String> fields) {
+        return BookETag.ofList("page=" + page.getNumber() + ",size=" + page.getSize() + ",total=" + page.getTotalElements(),
+                page.getContent(), fields);
+    }
+
+    private static String etag(CursorPage<Book> page, Set<String> fields) {
+        return BookETag.ofList("cursor,next=" + page.getNextCursor(), page.getContent(), fields);
+    }
+
+    /** Restricts JSON output of every {@link Book} in {@code body} to {@code fields}. */
+    private static Object project(Object body, Set<String> fields) {
+        if (fields == null) return body;
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(new SimpleFilterProvider()
+                .addFilter(Book.FIELDS_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(fields)));
+        return value;
+    }
+
+    @ExceptionHandler(BookCursor.InvalidCursorException.class)
+    public ResponseEntity<String> invalidCursor() {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid cursor");
+    }
 }
@@ -0,0 +1,53 @@
+package com.practice.mongoapi.web;
+
+import com.practice.mongoapi.model.Book;
+import com.practice.mongoapi.service.ReactiveBookService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** Non-blocking v2 of the read and quote endpoints; collections are streamed as NDJSON. */
+@RestController
+@RequestMapping("/api/v2/books")
+public class BookV2Controller {
+
+    private final ReactiveBookService service;
+
+    public BookV2Controller(ReactiveBookService service) {
+        this.service = service;
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<?>> get(@PathVariable String id) {
+        return service.get(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).body("Not found"));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Book> list() {
+        return service.list();
+    }
+
+    @GetMapping(value = "/by-author", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Book> byAuthor(@RequestParam String author) {
+        return service.findByAuthor(author);
+    }
+
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Book> search(@RequestParam String q) {
+        return service.search(q);
+    }
+
+    @GetMapping("/{id}/price-with-discount")
+    public Mono<ResponseEntity<?>> priceWithDiscount(@PathVariable String id) {
+        return service.quotePrice(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body("Not found")))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.BAD_GATEWAY).body("Pricing service error")));
+    }
+}
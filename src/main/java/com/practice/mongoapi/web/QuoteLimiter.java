@@ -0,0 +1,122 @@
+package com.practice.mongoapi.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bulkhead with an adaptive size around the price-with-discount endpoints, so a slow pricing service cannot take
+ * every Tomcat thread from the CRUD endpoints. At most {@code limit} quote requests run at once; the next one is
+ * answered {@code 503} with {@code Retry-After} straight away instead of queueing.
+ * <p>
+ * The limit is AIMD on observed latency: each quote request slower than {@code latency-target}, or answered 5xx,
+ * multiplies it by {@code backoff}; each faster one adds 1 while at least half the limit is in use. It stays within
+ * {@code min-limit}..{@code max-limit}; keep {@code max-limit} well below {@code server.tomcat.threads.max}.
+ * Meters: {@code pricing.limiter.limit}, {@code pricing.limiter.in.flight}, {@code pricing.limiter.rejected}.
+ * The state is guarded by a {@link ReentrantLock} rather than a monitor, so a virtual thread waiting for it does not
+ * pin its carrier.
+ */
+@Component
+public class QuoteLimiter implements HandlerInterceptor {
+    public static final String[] PATHS = {"/api/books/*/price-with-discount", "/api/books/price-with-discount"};
+    private static final String STARTED = QuoteLimiter.class.getName() + ".started";
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetNanos;
+    private final double backoff;
+    private final String retryAfter;
+    private final Counter rejected;
+    private final ReentrantLock lock = new ReentrantLock();
+    // written under the lock; volatile so the gauges can read them without it
+    private volatile double limit;
+    private volatile int inFlight;
+
+    public QuoteLimiter(MeterRegistry registry,
+                        @Value("${pricing.limiter.enabled:true}") boolean enabled,
+                        @Value("${pricing.limiter.initial-limit:50}") int initialLimit,
+                        @Value("${pricing.limiter.min-limit:2}") int minLimit,
+                        @Value("${pricing.limiter.max-limit:100}") int maxLimit,
+                        @Value("${pricing.limiter.latency-target:1s}") Duration latencyTarget,
+                        @Value("${pricing.limiter.backoff:0.9}") double backoff,
+                        @Value("${pricing.limiter.retry-after:1s}") Duration retryAfter) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("pricing.limiter needs 1 <= min-limit <= max-limit");
+        }
+        if (backoff <= 0 || backoff >= 1) throw new IllegalArgumentException("pricing.limiter.backoff must be between 0 and 1");
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetNanos = latencyTarget.toNanos();
+        this.backoff = backoff;
+        this.retryAfter = Long.toString(Math.max(1, retryAfter.toSeconds()));
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.rejected = Counter.builder("pricing.limiter.rejected").register(registry);
+        Gauge.builder("pricing.limiter.limit", this, QuoteLimiter::limit).register(registry);
+        Gauge.builder("pricing.limiter.in.flight", this, QuoteLimiter::inFlight).register(registry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!enabled) return true;
+        if (!tryAcquire()) {
+            rejected.increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Too many pricing requests, retry later");
+            return false;
+        }
+        request.setAttribute(STARTED, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object started = request.getAttribute(STARTED);
+        if (started == null) return;
+        release(System.nanoTime() - (long) started, ex != null || response.getStatus() >= 500);
+    }
+
+    private boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) return false;
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long latencyNanos, boolean failed) {
+        lock.lock();
+        try {
+            int used = inFlight--;
+            if (failed || latencyNanos > targetNanos) {
+                limit = Math.max(minLimit, limit * backoff);
+            } else if (used * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int limit() { return (int) limit; }
+
+    private int inFlight() { return inFlight; }
+}
@@ -1,26 +1,38 @@
 package com.practice.mongoapi;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.practice.mongoapi.dto.BookDto;
+import com.practice.mongoapi.dto.BookPatch;
 import com.practice.mongoapi.model.Book;
 import com.practice.mongoapi.repo.BookRepository;
+import com.practice.mongoapi.service.BookFacetStats;
+import com.practice.mongoapi.service.BookIndexReconciler;
 import io.restassured.RestAssured;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.index.Index;
-import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.MongoDBContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.time.Duration;
+
 import static io.restassured.RestAssured.given;
+import static org.awaitility.Awaitility.await;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @Testcontainers
@@ -33,6 +45,12 @@ class BookApiIT {
     @DynamicPropertySource
     static void props(DynamicPropertyRegistry r) {
         r.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+        // only the change stream, not the fallback TTL, can refresh the near-cache within a test
+        r.add("books.cache.fallback-ttl", () -> "10m");
+        // builds the declared indexes before the first test and fails the suite on a COLLSCAN plan
+        r.add("books.indexes.verify-plans", () -> "fail");
+        // small enough for bulk-update to take both the single updateMany and the chunked path
+        r.add("books.bulk.update-chunk-size", () -> "2");
     }
 
     @LocalServerPort
@@ -44,26 +62,21 @@ class BookApiIT {
     @Autowired
     private MongoTemplate mongoTemplate;
 
+    @Autowired
+    private BookFacetStats facetStats;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookIndexReconciler indexes;
+
     @BeforeEach
     void setup() {
         RestAssured.baseURI = "http://localhost";
         RestAssured.port = port;
         repo.deleteAll();
-        ensureIndex(); // Ensure index is created before each test
-    }
-
-    private void ensureIndex() {
-        IndexOperations indexOps = mongoTemplate.indexOps(Book.class);
-        indexOps.dropAllIndexes(); // Clean up existing indexes
-
-        // Create the compound unique index using Index class
-        Index index = new Index()
-                .on("title", Sort.Direction.ASC)
-                .on("author", Sort.Direction.ASC)
-                .named("unique_title_author")
-                .unique();
-
-        indexOps.ensureIndex(index);
+        assertEquals(java.util.List.of(), indexes.reconcile()); // declared indexes, including the unique title+author one
     }
 
     @Test
@@ -129,4 +142,434 @@ class BookApiIT {
 
         given().when().delete("/api/books/{id}", id).then().statusCode(204);
     }
+
+    @Test
+    void cursor_pagination_walks_every_book_once() {
+        for (int i = 0; i < 5; i++) {
+            given().contentType("application/json")
+                .body(new BookDto("Volume " + i, "Knuth", 50.0 + i, java.util.List.of()))
+            .when()
+                .post("/api/books")
+            .then()
+                .statusCode(201);
+        }
+
+        java.util.Set<String> seen = new java.util.HashSet<>();
+        String cursor = "";
+        boolean hasNext = true;
+        while (hasNext) {
+            io.restassured.path.json.JsonPath page = given()
+                .queryParam("cursor", cursor)
+                .queryParam("size", 2)
+            .when()
+                .get("/api/books")
+            .then()
+                .statusCode(200)
+                .body("totalElements", nullValue())
+                .body("content.size()", lessThanOrEqualTo(2))
+                .extract().jsonPath();
+            seen.addAll(page.getList("content.id"));
+            hasNext = page.getBoolean("hasNext");
+            cursor = page.getString("nextCursor");
+        }
+        org.junit.jupiter.api.Assertions.assertEquals(5, seen.size());
+
+        given().queryParam("q", "volume").queryParam("cursor", "").queryParam("size", 3)
+            .when().get("/api/books/search")
+            .then().statusCode(200)
+            .body("content.size()", equalTo(3))
+            .body("hasNext", equalTo(true));
+
+        given().queryParam("cursor", "not-a-cursor")
+            .when().get("/api/books")
+            .then().statusCode(400);
+    }
+
+    @Test
+    void bulk_ndjson_import_reports_per_line_outcomes() {
+        given().contentType("application/json")
+            .body(new BookDto("DDD", "Evans", 42.0, java.util.List.of()))
+        .when()
+            .post("/api/books")
+        .then()
+            .statusCode(201);
+
+        String ndjson = String.join("\n",
+            "{\"title\":\"Clean Code\",\"author\":\"Robert Martin\",\"price\":39.99,\"tags\":[\"craft\"]}",
+            "{\"title\":\"\",\"author\":\"Nobody\",\"price\":10}",
+            "{not json",
+            "",
+            "{\"title\":\"DDD\",\"author\":\"Evans\",\"price\":42.0}",
+            "{\"title\":\"Refactoring\",\"author\":\"Martin Fowler\",\"price\":45.0}");
+
+        given()
+            .contentType("application/x-ndjson")
+            .body(ndjson)
+        .when()
+            .post("/api/books/bulk")
+        .then()
+            .statusCode(200)
+            .body("received", equalTo(5))
+            .body("inserted", equalTo(2))
+            .body("failed", equalTo(3))
+            .body("errors.line", contains(2, 3, 5))
+            .body("errors.status", contains(400, 400, 409));
+
+        given().when().get("/api/books/by-author?author=robert martin")
+            .then().statusCode(200)
+            .body("size()", equalTo(1));
+    }
+
+    @Test
+    void bulk_ndjson_import_skips_over_long_lines() {
+        String ndjson = String.join("\r\n",
+            "{\"title\":\"Short Before\",\"author\":\"Long Lines\",\"price\":10}",
+            "{\"title\":\"" + "x".repeat(70_000) + "\",\"author\":\"Long Lines\",\"price\":10}",
+            "{\"title\":\"Short After\",\"author\":\"Long Lines\",\"price\":10}");
+
+        given()
+            .contentType("application/x-ndjson")
+            .body(ndjson)
+        .when()
+            .post("/api/books/bulk")
+        .then()
+            .statusCode(200)
+            .body("received", equalTo(3))
+            .body("inserted", equalTo(2))
+            .body("errors.line", contains(2))
+            .body("errors.status", contains(413));
+    }
+
+    @Test
+    void export_streams_ndjson_and_resumes_after_checkpoint() throws Exception {
+        for (String title : java.util.List.of("Alpha", "Beta", "Gamma")) {
+            given().contentType("application/json")
+                .body(new BookDto(title, title.equals("Beta") ? "Other" : "Writer", 10.0, java.util.List.of("x")))
+            .when()
+                .post("/api/books")
+            .then()
+                .statusCode(201);
+        }
+
+        String all = given().when().get("/api/books/export?batchSize=1")
+            .then().statusCode(200)
+            .contentType("application/x-ndjson")
+            .extract().asString();
+        StringBuilder expected = new StringBuilder();
+        for (Book book : repo.findAll(org.springframework.data.domain.Sort.by("id"))) {
+            expected.append(objectMapper.writeValueAsString(book)).append('\n');
+        }
+        assertEquals(expected.toString(), all); // one compact object per line, nothing before or between
+        String[] lines = all.split("\n");
+        org.junit.jupiter.api.Assertions.assertEquals(3, lines.length);
+        String firstId = io.restassured.path.json.JsonPath.from(lines[0]).getString("id");
+
+        String rest = given().queryParam("after", firstId).when().get("/api/books/export")
+            .then().statusCode(200).extract().asString();
+        org.junit.jupiter.api.Assertions.assertEquals(2, rest.strip().split("\n").length);
+        org.junit.jupiter.api.Assertions.assertFalse(rest.contains(firstId));
+
+        String byAuthor = given().queryParam("author", "writer").when().get("/api/books/export")
+            .then().statusCode(200).extract().asString();
+        org.junit.jupiter.api.Assertions.assertEquals(2, byAuthor.strip().split("\n").length);
+
+        given().queryParam("after", "nope").when().get("/api/books/export")
+            .then().statusCode(400);
+    }
+
+    @Test
+    void fields_parameter_returns_sparse_books() {
+        String id = given().contentType("application/json")
+            .body(new BookDto("Clean Code", "Robert Martin", 39.99, java.util.List.of("craft")))
+        .when()
+            .post("/api/books")
+        .then()
+            .statusCode(201).extract().path("id");
+
+        given().when().get("/api/books/{id}?fields=title,price", id)
+            .then().statusCode(200)
+            .body("title", equalTo("Clean Code"))
+            .body("price", equalTo(39.99f))
+            .body("$", not(hasKey("author")))
+            .body("$", not(hasKey("tags")));
+
+        given().when().get("/api/books?fields=id,title")
+            .then().statusCode(200)
+            .body("content[0].id", equalTo(id))
+            .body("content[0]", not(hasKey("price")))
+            .body("totalElements", equalTo(1));
+
+        given().when().get("/api/books/search?q=clean&cursor=&fields=id")
+            .then().statusCode(200)
+            .body("content[0].id", equalTo(id))
+            .body("content[0]", not(hasKey("title")));
+
+        given().when().get("/api/books/{id}?fields=secret", id)
+            .then().statusCode(400);
+    }
+
+    @Test
+    void near_cache_is_invalidated_by_local_and_remote_writes() {
+        String id = given().contentType("application/json")
+                .body(new BookDto("Cached", "Near", 10.0, java.util.List.of("cache")))
+                .post("/api/books").then().statusCode(201)
+                .extract().path("id");
+        given().get("/api/books/{id}", id).then().statusCode(200).body("price", equalTo(10.0f));
+        given().get("/api/books/{id}", id).then().statusCode(200).body("price", equalTo(10.0f));
+
+        given().contentType("application/json")
+                .body(new BookDto("Cached", "Near", 12.0, java.util.List.of("cache")))
+                .put("/api/books/{id}", id).then().statusCode(200);
+        given().get("/api/books/{id}", id).then().statusCode(200).body("price", equalTo(12.0f));
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                given().get("/actuator/metrics/books.cache.change.stream")
+                        .then().body("measurements[0].value", equalTo(1.0f)));
+
+        // another node writes straight to Mongo
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(id)), Update.update("price", 15.0), Book.class);
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                given().get("/api/books/{id}", id).then().statusCode(200).body("price", equalTo(15.0f)));
+
+        mongoTemplate.remove(Query.query(Criteria.where("id").is(id)), Book.class);
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                given().get("/api/books/{id}", id).then().statusCode(404));
+
+        given().get("/actuator/metrics/cache.gets?tag=cache:books.byId&tag=result:hit")
+                .then().statusCode(200).body("measurements[0].value", greaterThan(0.0f));
+    }
+
+    @Test
+    void change_stream_recovers_after_the_collection_is_dropped() {
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                given().get("/actuator/metrics/books.cache.change.stream")
+                        .then().body("measurements[0].value", equalTo(1.0f)));
+
+        // invalidates the stream: the server closes its cursor
+        mongoTemplate.dropCollection(Book.class);
+
+        String id = given().contentType("application/json")
+                .body(new BookDto("Dropped", "Stream", 10.0, java.util.List.of()))
+                .post("/api/books").then().statusCode(201)
+                .extract().path("id");
+        given().get("/api/books/{id}", id).then().statusCode(200).body("price", equalTo(10.0f));
+
+        // with a 10m fallback TTL only a reopened stream can make this visible
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(id)), Update.update("price", 11.0), Book.class);
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                given().get("/api/books/{id}", id).then().statusCode(200).body("price", equalTo(11.0f)));
+        given().get("/actuator/metrics/books.cache.change.stream")
+                .then().body("measurements[0].value", equalTo(1.0f));
+    }
+
+    @Test
+    void conditional_requests_use_etag_and_last_modified() {
+        String id = given().contentType("application/json")
+                .body(new BookDto("Conditional", "Fielding", 20.0, java.util.List.of("http")))
+                .post("/api/books").then().statusCode(201)
+                .extract().path("id");
+
+        io.restassured.response.Response first = given().get("/api/books/{id}", id);
+        first.then().statusCode(200).header("ETag", notNullValue()).header("Last-Modified", notNullValue());
+        String etag = first.header("ETag");
+
+        given().header("If-None-Match", etag).get("/api/books/{id}", id)
+                .then().statusCode(304).body(emptyString());
+        given().header("If-Modified-Since", first.header("Last-Modified")).get("/api/books/{id}", id)
+                .then().statusCode(304);
+        io.restassured.response.Response sparse = given().header("If-None-Match", etag).get("/api/books/{id}?fields=title", id);
+        sparse.then().statusCode(200)
+                .header("ETag", allOf(notNullValue(), not(etag)))
+                .header("Last-Modified", notNullValue())
+                .body("version", nullValue());
+        given().header("If-None-Match", sparse.header("ETag")).get("/api/books/{id}?fields=title", id)
+                .then().statusCode(304);
+
+        given().contentType("application/json").header("If-Match", "\"stale\"")
+                .body(new BookDto("Conditional", "Fielding", 25.0, java.util.List.of("http")))
+                .put("/api/books/{id}", id)
+                .then().statusCode(412);
+        String updated = given().contentType("application/json").header("If-Match", etag)
+                .body(new BookDto("Conditional", "Fielding", 25.0, java.util.List.of("http")))
+                .put("/api/books/{id}", id)
+                .then().statusCode(200).extract().header("ETag");
+        given().header("If-None-Match", etag).get("/api/books/{id}", id)
+                .then().statusCode(200).body("price", equalTo(25.0f)).header("ETag", updated);
+
+        String listTag = given().get("/api/books?page=0&size=5").then().statusCode(200).extract().header("ETag");
+        given().header("If-None-Match", listTag).get("/api/books?page=0&size=5").then().statusCode(304);
+        String sparseListTag = given().get("/api/books?page=0&size=5&fields=title")
+                .then().statusCode(200).header("ETag", allOf(notNullValue(), not(listTag)))
+                .body("content[0].version", nullValue())
+                .extract().header("ETag");
+        given().header("If-None-Match", sparseListTag).get("/api/books?page=0&size=5&fields=title").then().statusCode(304);
+        given().contentType("application/json")
+                .body(new BookDto("Conditional II", "Fielding", 20.0, java.util.List.of("http")))
+                .post("/api/books").then().statusCode(201);
+        given().header("If-None-Match", listTag).get("/api/books?page=0&size=5").then().statusCode(200);
+    }
+
+    @Test
+    void patch_sets_only_supplied_fields_and_bumps_version() {
+        String id = given().contentType("application/json")
+                .body(new BookDto("Patchable", "Beck", 30.0, java.util.List.of("tdd")))
+                .post("/api/books").then().statusCode(201)
+                .extract().path("id");
+        given().contentType("application/json")
+                .body(new BookDto("Taken", "Beck", 30.0, java.util.List.of()))
+                .post("/api/books").then().statusCode(201);
+        String etag = given().get("/api/books/{id}", id).then().statusCode(200).extract().header("ETag");
+
+        String patched = given().contentType("application/json").header("If-Match", etag)
+                .body(new BookPatch(null, null, 35.0, null))
+                .patch("/api/books/{id}", id)
+                .then().statusCode(200)
+                .body("price", equalTo(35.0f))
+                .body("title", is("Patchable"))
+                .body("tags", hasItem("tdd"))
+                .body("version", equalTo(1))
+                .header("ETag", not(etag))
+                .extract().header("ETag");
+        given().get("/api/books/{id}", id).then().statusCode(200)
+                .body("price", equalTo(35.0f)).body("version", equalTo(1)).header("ETag", patched);
+
+        given().contentType("application/json").header("If-Match", etag)
+                .body(new BookPatch(null, null, 40.0, null))
+                .patch("/api/books/{id}", id)
+                .then().statusCode(412);
+        given().contentType("application/json").body("{}")
+                .patch("/api/books/{id}", id)
+                .then().statusCode(400);
+        given().contentType("application/json")
+                .body(new BookPatch("Taken", null, null, null))
+                .patch("/api/books/{id}", id)
+                .then().statusCode(409);
+        given().contentType("application/json")
+                .body(new BookPatch(null, null, 40.0, null))
+                .patch("/api/books/{id}", "000000000000000000000000")
+                .then().statusCode(404);
+
+        given().contentType("application/json").body(new BookPatch("Patched Title", null, null, null))
+                .patch("/api/books/{id}", id)
+                .then().statusCode(200).body("version", equalTo(2));
+        given().get("/api/books/search?q=patched").then().statusCode(200).body("id", hasItem(id));
+        given().contentType("application/json").header("If-Match", patched)
+                .body(new BookDto("Patched Title", "Beck", 50.0, java.util.List.of()))
+                .put("/api/books/{id}", id)
+                .then().statusCode(412);
+    }
+
+    @Test
+    void facets_count_tags_and_price_buckets_incrementally() {
+        facetStats.rebuild(); // other tests clear the collection behind the service's back
+        String id = given().contentType("application/json")
+                .body(new BookDto("Facet A", "Knuth", 5.0, java.util.List.of("algorithms", "node.js")))
+                .post("/api/books").then().statusCode(201).extract().path("id");
+        String other = given().contentType("application/json")
+                .body(new BookDto("Facet B", "Sedgewick", 15.0, java.util.List.of("algorithms")))
+                .post("/api/books").then().statusCode(201).extract().path("id");
+        given().contentType("application/x-ndjson")
+                .body("{\"title\":\"Facet C\",\"author\":\"Sedgewick\",\"price\":150.0,\"tags\":[\"java\"]}\n")
+                .post("/api/books/bulk").then().statusCode(200).body("inserted", equalTo(1));
+
+        given().get("/api/books/facets").then().statusCode(200)
+                .body("source", is("stats"))
+                .body("total", equalTo(3))
+                .body("tags[0].tag", is("algorithms")).body("tags[0].count", equalTo(2))
+                .body("tags.find { it.tag == 'node.js' }.count", equalTo(1))
+                .body("prices.count", contains(1, 1, 0, 0, 1))
+                .body("prices[4].max", nullValue());
+        given().get("/api/books/facets?author=sedgewick").then().statusCode(200)
+                .body("source", is("aggregation"))
+                .body("total", equalTo(2))
+                .body("prices.count", contains(0, 1, 0, 0, 1));
+        given().get("/api/books/facets?tag=algorithms").then().statusCode(200)
+                .body("total", equalTo(2))
+                .body("tags.tag", contains("algorithms", "node.js"));
+
+        given().contentType("application/json").body(new BookPatch(null, null, 60.0, java.util.List.of("java")))
+                .patch("/api/books/{id}", id).then().statusCode(200);
+        given().delete("/api/books/{id}", other).then().statusCode(204);
+        given().get("/api/books/facets").then().statusCode(200)
+                .body("total", equalTo(2))
+                .body("tags.tag", contains("java"))
+                .body("tags[0].count", equalTo(2))
+                .body("prices.count", contains(0, 0, 0, 1, 1));
+    }
+
+    @Test
+    void bulk_update_reprices_and_retags_matching_books() {
+        facetStats.rebuild(); // other tests clear the collection behind the service's back
+        String cheap = given().contentType("application/json")
+                .body(new BookDto("Bulk A", "Knuth", 10.0, java.util.List.of("algo", "old")))
+                .post("/api/books").then().statusCode(201).extract().path("id");
+        String mid = given().contentType("application/json")
+                .body(new BookDto("Bulk B", "Knuth", 20.0, java.util.List.of("algo", "old")))
+                .post("/api/books").then().statusCode(201).extract().path("id");
+        given().contentType("application/json")
+                .body(new BookDto("Bulk C", "Knuth", 30.0, java.util.List.of("old")))
+                .post("/api/books").then().statusCode(201);
+        String other = given().contentType("application/json")
+                .body(new BookDto("Bulk D", "Sedgewick", 40.0, java.util.List.of("old")))
+                .post("/api/books").then().statusCode(201).extract().path("id");
+        given().get("/api/books/{id}", mid).then().statusCode(200); // cached, must be invalidated
+
+        given().contentType("application/json")
+                .body("{\"filter\":{\"author\":\"knuth\",\"minPrice\":15},\"scalePrice\":1.1,"
+                        + "\"removeTags\":[\"old\"],\"addTags\":[\"classic\",\"algo\"]}")
+                .post("/api/books/bulk-update").then().statusCode(200)
+                .body("matched", equalTo(2)).body("modified", equalTo(2)).body("chunks", equalTo(1));
+        given().get("/api/books/{id}", mid).then().statusCode(200)
+                .body("price", equalTo(22.0f))
+                .body("tags", contains("algo", "classic"))
+                .body("version", equalTo(1));
+        given().get("/api/books/{id}", cheap).then().body("price", equalTo(10.0f)).body("version", equalTo(0));
+
+        // three matches with a chunk size of 2; the two already tagged are not rewritten
+        given().contentType("application/json")
+                .body("{\"filter\":{\"author\":\"Knuth\"},\"addTags\":[\"classic\"]}")
+                .post("/api/books/bulk-update").then().statusCode(200)
+                .body("matched", equalTo(3)).body("modified", equalTo(1)).body("chunks", equalTo(1));
+        given().get("/api/books/{id}", cheap).then().body("tags", contains("algo", "old", "classic")).body("version", equalTo(1));
+        given().get("/api/books/{id}", other).then().body("tags", contains("old")).body("version", equalTo(0));
+
+        given().contentType("application/json")
+                .body("{\"filter\":{\"tag\":\"old\"},\"setPrice\":9.99}")
+                .post("/api/books/bulk-update").then().statusCode(200)
+                .body("matched", equalTo(2)).body("modified", equalTo(2));
+        given().get("/api/books/facets?tag=classic").then().statusCode(200).body("total", equalTo(3));
+        // adjusted by delta, not rebuilt: the materialized counts match the books
+        given().get("/api/books/facets").then().statusCode(200)
+                .body("source", is("stats"))
+                .body("total", equalTo(4))
+                .body("tags.tag", contains("algo", "classic", "old"))
+                .body("tags.count", contains(3, 3, 2))
+                .body("prices.count", contains(2, 0, 2, 0, 0));
+
+        given().contentType("application/json").body("{\"filter\":{},\"setPrice\":1}")
+                .post("/api/books/bulk-update").then().statusCode(400);
+        given().contentType("application/json").body("{\"filter\":{\"tag\":\"old\"}}")
+                .post("/api/books/bulk-update").then().statusCode(400).body(is("Nothing to update"));
+    }
+
+    @Test
+    void binary_formats_and_gzip_are_negotiated() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            given().contentType("application/json")
+                    .body(new BookDto("Binary Book " + i, "Format", 10.0 + i, java.util.List.of("cbor", "smile")))
+                    .post("/api/books").then().statusCode(201);
+        }
+
+        byte[] cbor = given().accept("application/cbor").get("/api/books/search?q=binary&fields=title,updatedAt")
+                .then().statusCode(200).contentType("application/cbor").extract().asByteArray();
+        JsonNode books = new ObjectMapper(new CBORFactory()).readTree(cbor);
+        assertEquals(30, books.size());
+        assertTrue(books.get(0).get("updatedAt").isNumber());
+        assertNull(books.get(0).get("author"));
+
+        given().accept("application/x-jackson-smile").get("/api/books?page=0&size=30")
+                .then().statusCode(200).contentType("application/x-jackson-smile");
+        given().header("Accept-Encoding", "gzip").get("/api/books/by-author?author=format")
+                .then().statusCode(200).header("Content-Encoding", "gzip").body("size()", equalTo(30));
+    }
 }
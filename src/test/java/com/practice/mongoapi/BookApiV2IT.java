@@ -0,0 +1,148 @@
+package com.practice.mongoapi;
+
+import com.practice.mongoapi.dto.BookDto;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+class BookApiV2IT {
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:6.0");
+
+    // asynchronous responses so delayed stubs do not hold a WireMock thread per call
+    static WireMockServer wm = new WireMockServer(options().dynamicPort()
+            .containerThreads(50)
+            .asynchronousResponseEnabled(true)
+            .asynchronousResponseThreads(10));
+    static { wm.start(); }
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+        r.add("spring.data.mongodb.database", () -> "v2_it");
+        r.add("pricing.base-url", () -> wm.baseUrl());
+        r.add("pricing.cache.enabled", () -> "false");
+        // slow on purpose in the in-flight test; that is about pool capacity, not the breaker
+        r.add("pricing.circuit-breaker.slow-call-threshold", () -> "10s");
+    }
+
+    @LocalServerPort
+    int port;
+
+    private String api(String path) { return "http://localhost:" + port + path; }
+
+    @AfterAll
+    static void shutdown() { wm.stop(); }
+
+    private String create(String title, String author, double price) {
+        return given().contentType("application/json")
+                .body(new BookDto(title, author, price, List.of("v2")))
+                .post(api("/api/books"))
+                .then().statusCode(201)
+                .extract().path("id");
+    }
+
+    @Test
+    void get_matches_v1() {
+        String id = create("Reactive-Streams", "Kuhn", 30.0);
+
+        String v1 = given().get(api("/api/books/{id}"), id).then().statusCode(200).extract().asString();
+        String v2 = given().get(api("/api/v2/books/{id}"), id).then().statusCode(200).extract().asString();
+        assertEquals(v1, v2);
+
+        given().get(api("/api/v2/books/{id}"), "000000000000000000000000")
+                .then().statusCode(404).body(is("Not found"));
+    }
+
+    @Test
+    void search_and_by_author_stream_ndjson_like_v1() {
+        create("Streamlined-One", "Nygard", 10.0);
+        create("Streamlined-Two", "Nygard", 11.0);
+
+        List<String> v1Author = given().queryParam("author", "nygard")
+                .get(api("/api/books/by-author")).then().statusCode(200).extract().path("id");
+        String v2Author = given().accept("application/x-ndjson").queryParam("author", "nygard")
+                .get(api("/api/v2/books/by-author"))
+                .then().statusCode(200).contentType(startsWith("application/x-ndjson"))
+                .extract().asString();
+        assertEquals(v1Author, ids(v2Author));
+
+        List<String> v1Search = given().queryParam("q", "streamlined")
+                .get(api("/api/books/search")).then().statusCode(200).extract().path("id");
+        String v2Search = given().accept("application/x-ndjson").queryParam("q", "streamlined")
+                .get(api("/api/v2/books/search")).then().statusCode(200).extract().asString();
+        assertEquals(v1Search, ids(v2Search));
+        assertEquals(2, v1Search.size());
+    }
+
+    @Test
+    void quote_matches_v1_and_maps_errors() {
+        String id = create("Backpressure", "Karnok", 50.0);
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .withQueryParam("title", equalTo("Backpressure"))
+                .willReturn(okJson("{\"discountPct\": 0.125}")));
+
+        String v1 = given().get(api("/api/books/{id}/price-with-discount"), id).then().statusCode(200).extract().asString();
+        given().get(api("/api/v2/books/{id}/price-with-discount"), id)
+                .then().statusCode(200)
+                .body("finalPrice", is(43.75f))
+                .body(is(v1));
+
+        given().get(api("/api/v2/books/{id}/price-with-discount"), "000000000000000000000000")
+                .then().statusCode(404);
+
+        String broken = create("Bad-Gateway", "Karnok", 20.0);
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .withQueryParam("title", equalTo("Bad-Gateway"))
+                .willReturn(aResponse().withStatus(500)));
+        given().get(api("/api/v2/books/{id}/price-with-discount"), broken)
+                .then().statusCode(502).body(is("Pricing service error"));
+    }
+
+    @Test
+    void hundreds_of_slow_quotes_stay_in_flight_at_once() {
+        String id = create("Event-Loop", "Maurer", 40.0);
+        // each call holds its connection far longer than the blocking pool's 200ms wait for one
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .withQueryParam("title", equalTo("Event-Loop"))
+                .willReturn(okJson("{\"discountPct\": 0.25}").withFixedDelay(1500)));
+
+        HttpClient http = HttpClient.newHttpClient();
+        HttpRequest quote = HttpRequest.newBuilder(URI.create(api("/api/v2/books/" + id + "/price-with-discount"))).build();
+        List<CompletableFuture<HttpResponse<String>>> inFlight = new java.util.ArrayList<>();
+        for (int i = 0; i < 300; i++) inFlight.add(http.sendAsync(quote, HttpResponse.BodyHandlers.ofString()));
+
+        List<Integer> statuses = inFlight.stream().map(CompletableFuture::join).map(HttpResponse::statusCode).toList();
+        assertEquals(List.of(200), statuses.stream().distinct().toList());
+        wm.verify(300, getRequestedFor(urlPathEqualTo("/discount")).withQueryParam("title", equalTo("Event-Loop")));
+    }
+
+    private static List<String> ids(String ndjson) {
+        return ndjson.lines().filter(l -> !l.isBlank())
+                .map(l -> io.restassured.path.json.JsonPath.from(l).getString("id"))
+                .toList();
+    }
+}
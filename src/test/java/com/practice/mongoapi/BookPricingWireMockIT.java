@@ -1,5 +1,6 @@
 package com.practice.mongoapi;
 
+import com.practice.mongoapi.dto.BatchQuoteRequest;
 import com.practice.mongoapi.dto.BookDto;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import io.restassured.matcher.ResponseAwareMatcher;
@@ -14,10 +15,18 @@ import org.testcontainers.containers.MongoDBContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @Testcontainers
@@ -106,4 +115,122 @@ class BookPricingWireMockIT {
         given().get(api("/api/books/{id}/price-with-discount"), id)
                 .then().statusCode(502);
     }
+
+    @Test
+    void price_with_discount_is_cached_until_book_changes() {
+        String id = given().contentType("application/json")
+                .body(new BookDto("Refactoring", "Martin Fowler", 45.00, java.util.List.of()))
+                .post(api("/api/books")).then().statusCode(201)
+                .extract().path("id");
+
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .withQueryParam("title", equalTo("Refactoring"))
+                .willReturn(okJson("{\"discountPct\": 0.10}")));
+
+        given().get(api("/api/books/{id}/price-with-discount"), id).then().statusCode(200);
+        given().get(api("/api/books/{id}/price-with-discount"), id).then().statusCode(200);
+        wm.verify(1, getRequestedFor(urlPathEqualTo("/discount"))
+                .withQueryParam("title", equalTo("Refactoring")));
+
+        given().contentType("application/json")
+                .body(new BookDto("Refactoring", "Martin Fowler", 50.00, java.util.List.of()))
+                .put(api("/api/books/{id}"), id).then().statusCode(200);
+
+        given().get(api("/api/books/{id}/price-with-discount"), id)
+                .then().statusCode(200)
+                .body("finalPrice", closeTo(45.00f, 0.01f));
+        wm.verify(2, getRequestedFor(urlPathEqualTo("/discount"))
+                .withQueryParam("title", equalTo("Refactoring")));
+    }
+
+    @Test
+    void batch_price_with_discount_isolates_failures() {
+        String ok = given().contentType("application/json")
+                .body(new BookDto("Working Effectively", "Feathers", 30.00, java.util.List.of()))
+                .post(api("/api/books")).then().statusCode(201)
+                .extract().path("id");
+        String failing = given().contentType("application/json")
+                .body(new BookDto("Release It", "Nygard", 40.00, java.util.List.of()))
+                .post(api("/api/books")).then().statusCode(201)
+                .extract().path("id");
+        String missing = "000000000000000000000000";
+
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .withQueryParam("title", equalTo("Working Effectively"))
+                .willReturn(okJson("{\"discountPct\": 0.50}")));
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .withQueryParam("title", equalTo("Release It"))
+                .willReturn(serverError()));
+
+        given().contentType("application/json")
+                .body(new BatchQuoteRequest(java.util.List.of(ok, failing, missing)))
+                .post(api("/api/books/price-with-discount"))
+                .then().statusCode(200)
+                .body("size()", equalTo(3))
+                .body("[0].bookId", is(ok))
+                .body("[0].status", equalTo(200))
+                .body("[0].quote.finalPrice", closeTo(15.00f, 0.01f))
+                .body("[1].status", equalTo(502))
+                .body("[2].bookId", is(missing))
+                .body("[2].status", equalTo(404));
+    }
+
+    @Test
+    void concurrent_quotes_for_one_book_share_a_single_pricing_call() throws Exception {
+        String id = given().contentType("application/json")
+                .body(new BookDto("Trending", "Someone", 20.00, java.util.List.of()))
+                .post(api("/api/books")).then().statusCode(201)
+                .extract().path("id");
+
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .withQueryParam("title", equalTo("Trending"))
+                .willReturn(okJson("{\"discountPct\": 0.25}").withFixedDelay(500)));
+
+        int callers = 32;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                statuses.add(pool.submit(() -> {
+                    start.await();
+                    return given().get(api("/api/books/{id}/price-with-discount"), id).statusCode();
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> status : statuses) {
+                assertEquals(200, status.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        wm.verify(1, getRequestedFor(urlPathEqualTo("/discount"))
+                .withQueryParam("title", equalTo("Trending")));
+    }
+
+    @Test
+    void prometheus_exposes_hot_path_metrics() {
+        String id = given().contentType("application/json")
+                .body(new BookDto("Observability", "Majors", 40.0, List.of("ops")))
+                .post(api("/api/books")).then().statusCode(201)
+                .extract().path("id");
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .withQueryParam("title", equalTo("Observability"))
+                .willReturn(okJson("{\"discountPct\": 0.10}")));
+        given().get(api("/api/books/{id}/price-with-discount"), id).then().statusCode(200);
+
+        given().get(api("/actuator/prometheus"))
+                .then().statusCode(200)
+                .body(containsString("books_service_seconds_bucket{class=\"com.practice.mongoapi.service.BookService\""))
+                .body(containsString("method=\"quotePrice\""))
+                .body(containsString("pricing_discount_seconds_count"))
+                .body(containsString("spring_data_repository_invocations_seconds_bucket"))
+                .body(containsString("mongodb_driver_commands_seconds_count"))
+                .body(containsString("mongodb_driver_commands_documents_count{collection=\"books\""))
+                .body(containsString("http_client_requests_seconds_count"))
+                .body(containsString("httpcomponents_httpclient_pool_total_max{httpclient=\"pricing\""))
+                .body(containsString("resilience4j_circuitbreaker_state"))
+                .body(containsString("tomcat_threads_busy_threads"));
+    }
 }
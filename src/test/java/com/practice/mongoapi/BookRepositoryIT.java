@@ -1,12 +1,25 @@
 package com.practice.mongoapi;
 
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
 import com.practice.mongoapi.model.Book;
+import com.practice.mongoapi.model.SearchKeys;
 import com.practice.mongoapi.repo.BookRepository;
+import com.practice.mongoapi.service.BookIndexReconciler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.index.Index;
@@ -18,6 +31,7 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -25,6 +39,9 @@ import static org.junit.jupiter.api.Assertions.*;
 @Testcontainers
 class BookRepositoryIT {
 
+    static final String START = "000000000000000000000000";
+    static final Pageable FIRST_PAGE = PageRequest.of(0, 10, Sort.by("id"));
+
     @Container
     static MongoDBContainer mongo = new MongoDBContainer("mongo:6.0"); // Wait for MongoDB to be ready
 
@@ -40,6 +57,30 @@ class BookRepositoryIT {
     @Autowired
     private MongoTemplate mongoTemplate;
 
+    @Autowired
+    FindCapture finds;
+
+    @TestConfiguration
+    static class CaptureConfig {
+        @Bean
+        FindCapture findCapture() { return new FindCapture(); }
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer captureFinds(FindCapture capture) {
+            return settings -> settings.addCommandListener(capture);
+        }
+    }
+
+    /** Records every {@code find} the driver sends so its plan can be explained. */
+    static class FindCapture implements CommandListener {
+        final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void commandStarted(CommandStartedEvent event) {
+            if ("find".equals(event.getCommandName())) commands.add(event.getCommand().clone());
+        }
+    }
+
     @BeforeEach
     void clean() {
         repo.deleteAll();
@@ -47,17 +88,12 @@ class BookRepositoryIT {
     }
 
     private void ensureIndex() {
-        IndexOperations indexOps = mongoTemplate.indexOps(Book.class);
-        indexOps.dropAllIndexes(); // Clean up existing indexes
-
-        // Create the compound unique index using Index class
-        Index index = new Index()
-                .on("title", Sort.Direction.ASC)
-                .on("author", Sort.Direction.ASC)
-                .named("unique_title_author")
-                .unique();
+        mongoTemplate.indexOps(Book.class).dropAllIndexes(); // Clean up existing indexes
+        assertEquals(List.of(), reconciler().reconcile());
+    }
 
-        indexOps.ensureIndex(index);
+    private BookIndexReconciler reconciler() {
+        return new BookIndexReconciler(mongoTemplate, new SimpleMeterRegistry(), true, BookIndexReconciler.PlanCheck.OFF);
     }
 
     @Test
@@ -66,8 +102,74 @@ class BookRepositoryIT {
         repo.save(new Book(null, "Patterns", "GoF", 50.0, List.of("design")));
 
         assertEquals(2, repo.findAll().size());
-        assertEquals(1, repo.findByAuthorIgnoreCase("martin fowler").size());
-        assertEquals(1, repo.findByTitleContainingIgnoreCase("pat").size());
+        assertEquals(1, repo.findByAuthorKeyAfter(SearchKeys.fold("martin fowler"), START, FIRST_PAGE, null).getContent().size());
+        assertEquals(1, repo.searchTitle("pat", START, FIRST_PAGE, null).getContent().size());
+        assertEquals(1, repo.searchTitle("ACTOR", START, FIRST_PAGE, null).getContent().size());
+        assertEquals(0, repo.searchTitle("patterns x", START, FIRST_PAGE, null).getContent().size());
+    }
+
+    @Test
+    void projection_loads_only_requested_fields() {
+        Book saved = repo.save(new Book(null, "Refactoring", "Martin Fowler", 45.0, List.of("refactor")));
+
+        Book projected = repo.findById(saved.getId(), List.of("title", "price")).orElseThrow();
+        assertEquals(saved.getId(), projected.getId());
+        assertEquals("Refactoring", projected.getTitle());
+        assertEquals(45.0, projected.getPrice());
+        assertNull(projected.getAuthor());
+        assertNull(projected.getTags());
+    }
+
+    @Test
+    void search_queries_never_collscan() {
+        repo.save(new Book(null, "Refactoring", "Martin Fowler", 45.0, List.of("refactor")));
+        repo.save(new Book(null, "Patterns", "GoF", 50.0, List.of("design")));
+        finds.commands.clear();
+
+        repo.findByAuthorKeyAfter(SearchKeys.fold("Martin Fowler"), START, FIRST_PAGE, null);
+        repo.searchTitle("pa", START, FIRST_PAGE, null);
+        repo.searchTitle("factor", START, FIRST_PAGE, null);
+
+        assertEquals(3, finds.commands.size());
+        for (BsonDocument find : finds.commands) {
+            BsonDocument explain = new BsonDocument("explain", new BsonDocument("find", find.get("find"))
+                    .append("filter", find.get("filter"))
+                    .append("sort", find.getDocument("sort", new BsonDocument())))
+                    .append("verbosity", new BsonString("queryPlanner"));
+            String plan = mongoTemplate.getDb().runCommand(explain)
+                    .get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+            assertFalse(plan.contains("COLLSCAN"), plan);
+        }
+    }
+
+    @Test
+    void every_repository_query_plans_an_index() {
+        repo.save(new Book(null, "Refactoring", "Martin Fowler", 45.0, List.of("refactor")));
+
+        assertEquals(java.util.Map.of(), reconciler().verifyPlans());
+    }
+
+    @Test
+    void reconcile_accepts_existing_index_under_another_name() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Book.class);
+        indexOps.dropIndex("uniq_title_author");
+        indexOps.ensureIndex(new Index().on("title", Sort.Direction.ASC).on("author", Sort.Direction.ASC)
+                .named("unique_title_author").unique());
+
+        assertEquals(List.of(), reconciler().reconcile());
+        assertFalse(indexOps.getIndexInfo().stream().anyMatch(i -> i.getName().equals("uniq_title_author")));
+    }
+
+    @Test
+    void fail_mode_refuses_to_start_without_the_unique_title_author_index() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Book.class);
+        indexOps.dropIndex("uniq_title_author");
+        indexOps.ensureIndex(new Index().on("title", Sort.Direction.ASC).on("author", Sort.Direction.ASC).named("title_author"));
+
+        BookIndexReconciler failing = new BookIndexReconciler(mongoTemplate, new SimpleMeterRegistry(), true,
+                BookIndexReconciler.PlanCheck.FAIL);
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> failing.run(null));
+        assertTrue(e.getMessage().contains("uniq_title_author"), e.getMessage());
     }
 
     @Test
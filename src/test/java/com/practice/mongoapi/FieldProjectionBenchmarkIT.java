@@ -0,0 +1,109 @@
+package com.practice.mongoapi;
+
+import com.practice.mongoapi.repo.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares full and sparse ({@code fields=id,title,price}) list pages of the maximum size:
+ * bytes on the wire and p50/p99 latency. Run with {@code mvn -Dtest=FieldProjectionBenchmarkIT test}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+class FieldProjectionBenchmarkIT {
+
+    static final int BOOKS = 5_000;
+    static final int PAGE_SIZE = 100;
+    static final int WARMUP = 50;
+    static final int REQUESTS = 500;
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:6.0");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+        r.add("spring.data.mongodb.database", () -> "projection_bench");
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    BookRepository repo;
+
+    final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void seed() throws Exception {
+        repo.deleteAll();
+        String tags = IntStream.range(0, 8).mapToObj(t -> "\"tag-" + t + "\"").collect(Collectors.joining(","));
+        String ndjson = IntStream.range(0, BOOKS)
+                .mapToObj(i -> "{\"title\":\"A reasonably long benchmark title number " + i + "\","
+                        + "\"author\":\"Author " + (i % 97) + "\",\"price\":" + (10 + i % 50) + ".99,"
+                        + "\"tags\":[" + tags + "]}")
+                .collect(Collectors.joining("\n"));
+        HttpResponse<String> imported = http.send(HttpRequest.newBuilder(uri("/api/books/bulk"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson)).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, imported.statusCode(), imported.body());
+    }
+
+    @Test
+    void sparse_fieldset_cuts_bytes_and_latency() throws Exception {
+        Result full = run("");
+        Result sparse = run("&fields=id,title,price");
+
+        System.out.printf("%-8s %12s %10s %10s%n", "mode", "bytes/page", "p50 ms", "p99 ms");
+        System.out.printf("%-8s %12d %10.2f %10.2f%n", "full", full.bytesPerPage, full.p50, full.p99);
+        System.out.printf("%-8s %12d %10.2f %10.2f%n", "sparse", sparse.bytesPerPage, sparse.p50, sparse.p99);
+
+        assertTrue(sparse.bytesPerPage * 2 < full.bytesPerPage,
+                "expected sparse pages to be under half the size of full pages");
+    }
+
+    private Result run(String fieldsParam) throws Exception {
+        int pages = BOOKS / PAGE_SIZE;
+        for (int i = 0; i < WARMUP; i++) get(i % pages, fieldsParam);
+        double[] millis = new double[REQUESTS];
+        long bytes = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            long start = System.nanoTime();
+            bytes += get(i % pages, fieldsParam);
+            millis[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(millis);
+        return new Result(bytes / REQUESTS, millis[REQUESTS / 2], millis[(int) Math.ceil(REQUESTS * 0.99) - 1]);
+    }
+
+    private int get(int page, String fieldsParam) throws Exception {
+        HttpResponse<byte[]> resp = http.send(
+                HttpRequest.newBuilder(uri("/api/books?size=" + PAGE_SIZE + "&page=" + page + fieldsParam)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, resp.statusCode());
+        return resp.body().length;
+    }
+
+    private URI uri(String path) { return URI.create("http://localhost:" + port + path); }
+
+    record Result(long bytesPerPage, double p50, double p99) {}
+}
@@ -0,0 +1,315 @@
+package com.practice.mongoapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.matching.MatchResult;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Open-model load test of create/get/list/search/price-with-discount against an in-process Mongo stand-in
+ * (or {@code -Dperf.mongo.uri}) and a WireMock pricing stub with injected latency and faults.
+ * <p>
+ * Requests are issued on a fixed schedule ({@code perf.rate}/s) to {@code perf.concurrency} workers and timed from
+ * their scheduled start, so queueing behind a slow response is counted (coordinated-omission corrected).
+ * Per-operation throughput and p50/p99/p99.9 are written to {@code target/perf/latency-results.json} and compared with
+ * the committed baseline ({@code perf.baseline}); the test fails without one. {@code -Dperf.baseline.update=true} records
+ * {@code target/perf/latency-baseline.json} instead of comparing, to be reviewed and copied over the committed file.
+ * A {@code 502} on {@code price} only counts as expected up to the number of faults WireMock actually injected.
+ * Run with {@code mvn -Pperf test}.
+ */
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+class LatencyRegressionIT {
+
+    static final String MONGO_URI = System.getProperty("perf.mongo.uri", "");
+    static final int FIXED_DELAY_MS = Integer.getInteger("perf.pricing.delay.fixed-ms", 20);
+    static final double LOGNORMAL_MEDIAN_MS = Double.parseDouble(System.getProperty("perf.pricing.delay.lognormal-median-ms", "0"));
+    static final double LOGNORMAL_SIGMA = Double.parseDouble(System.getProperty("perf.pricing.delay.lognormal-sigma", "0.4"));
+    static final double FAULT_RATE = Double.parseDouble(System.getProperty("perf.pricing.fault-rate", "0.01"));
+    static final int CONCURRENCY = Integer.getInteger("perf.concurrency", 32);
+    static final int RATE = Integer.getInteger("perf.rate", 40);
+    static final int WARMUP_SECONDS = Integer.getInteger("perf.warmup-seconds", 10);
+    static final int DURATION_SECONDS = Integer.getInteger("perf.duration-seconds", 30);
+    static final int SEED_BOOKS = Integer.getInteger("perf.seed-books", 1_000);
+    static final String MIX = System.getProperty("perf.mix", "create=1,get=4,list=2,search=2,price=1");
+    static final File BASELINE = new File(System.getProperty("perf.baseline", "src/test/resources/perf/latency-baseline.json"));
+    static final boolean UPDATE_BASELINE = Boolean.getBoolean("perf.baseline.update");
+    static final File RECORDED_BASELINE = new File("target/perf/latency-baseline.json");
+    static final double LATENCY_TOLERANCE = Double.parseDouble(System.getProperty("perf.tolerance.latency", "0.25"));
+    static final double TAIL_TOLERANCE = Double.parseDouble(System.getProperty("perf.tolerance.tail", "0.50"));
+    static final double THROUGHPUT_TOLERANCE = Double.parseDouble(System.getProperty("perf.tolerance.throughput", "0.10"));
+    static final double MIN_REGRESSION_MS = Double.parseDouble(System.getProperty("perf.tolerance.min-ms", "2"));
+
+    static final String[] WORDS = {"river", "dragon", "garden", "winter", "signal", "harbor", "copper", "meadow"};
+    static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    static MongoServer mongo;
+    static StubMapping faultStub;
+    static WireMockServer wm = new WireMockServer(options().dynamicPort()
+            .containerThreads(CONCURRENCY + 20)
+            .asynchronousResponseEnabled(true)
+            .asynchronousResponseThreads(CONCURRENCY));
+
+    final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    final AtomicLong created = new AtomicLong();
+
+    @BeforeAll
+    static void start() {
+        wm.start();
+        if (MONGO_URI.isBlank()) mongo = new MongoServer(new MemoryBackend());
+    }
+
+    @AfterAll
+    static void shutdown() {
+        wm.stop();
+        if (mongo != null) mongo.shutdownNow();
+    }
+
+    @Test
+    void latency_does_not_regress_against_baseline() throws Exception {
+        stubPricing();
+        String mongoUri = MONGO_URI.isBlank() ? uri(mongo.bind()) : MONGO_URI;
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(Application.class).run(
+                "--server.port=0",
+                "--spring.data.mongodb.uri=" + mongoUri,
+                "--spring.data.mongodb.database=perf",
+                "--pricing.base-url=" + wm.baseUrl(),
+                "--pricing.cache.enabled=false",
+                // the in-process stand-in has no change streams; the book cache runs on its fallback TTL either way
+                "--books.cache.change-stream.enabled=" + !MONGO_URI.isBlank())) {
+            String base = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+            List<String> ids = seed(base);
+            List<Op> ops = ops(base, ids);
+
+            drive(ops, WARMUP_SECONDS);
+            Map<String, Stats> results = drive(ops, DURATION_SECONDS);
+            report(results);
+            compare(results);
+        }
+    }
+
+    private void stubPricing() {
+        ResponseDefinitionBuilder ok = okJson("{\"discountPct\": 0.10}");
+        if (LOGNORMAL_MEDIAN_MS > 0) ok.withLogNormalRandomDelay(LOGNORMAL_MEDIAN_MS, LOGNORMAL_SIGMA);
+        else if (FIXED_DELAY_MS > 0) ok.withFixedDelay(FIXED_DELAY_MS);
+        wm.stubFor(get(urlPathEqualTo("/discount")).atPriority(10).willReturn(ok));
+        if (FAULT_RATE > 0) {
+            faultStub = wm.stubFor(get(urlPathEqualTo("/discount")).atPriority(1)
+                    .andMatching(req -> MatchResult.of(ThreadLocalRandom.current().nextDouble() < FAULT_RATE))
+                    .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+        }
+    }
+
+    private List<String> seed(String base) throws Exception {
+        String ndjson = IntStream.range(0, SEED_BOOKS)
+                .mapToObj(i -> "{\"title\":\"" + title(i) + "\",\"author\":\"Author " + (i % 100)
+                        + "\",\"price\":" + (5 + i % 50) + ",\"tags\":[\"perf\"]}")
+                .collect(Collectors.joining("\n"));
+        send(HttpRequest.newBuilder(URI.create(base + "/api/books/bulk"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson)));
+        String export = http.send(HttpRequest.newBuilder(URI.create(base + "/api/books/export")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        List<String> ids = export.lines()
+                .map(line -> io.restassured.path.json.JsonPath.from(line).getString("id"))
+                .toList();
+        assertEquals(SEED_BOOKS, ids.size(), "seeded books");
+        return ids;
+    }
+
+    private static String title(int i) {
+        return WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+    }
+
+    private List<Op> ops(String base, List<String> ids) {
+        Map<String, Op> all = new LinkedHashMap<>();
+        all.put("create", new Op("create", 201, () -> {
+            long n = created.incrementAndGet();
+            String body = "{\"title\":\"perf new " + n + "\",\"author\":\"Perf\",\"price\":12.5,\"tags\":[\"perf\"]}";
+            return HttpRequest.newBuilder(URI.create(base + "/api/books"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+        }));
+        all.put("get", new Op("get", 200, () -> HttpRequest.newBuilder(URI.create(base + "/api/books/" + pick(ids)))));
+        all.put("list", new Op("list", 200, () -> HttpRequest.newBuilder(
+                URI.create(base + "/api/books?page=" + ThreadLocalRandom.current().nextInt(10) + "&size=20"))));
+        all.put("search", new Op("search", 200, () -> HttpRequest.newBuilder(
+                URI.create(base + "/api/books/search?q=" + WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)]))));
+        all.put("price", new Op("price", 200, () -> HttpRequest.newBuilder(
+                URI.create(base + "/api/books/" + pick(ids) + "/price-with-discount"))));
+
+        List<Op> schedule = new ArrayList<>();
+        for (String entry : MIX.split(",")) {
+            String[] kv = entry.trim().split("=");
+            Op op = all.get(kv[0]);
+            if (op == null) throw new IllegalArgumentException("Unknown operation in perf.mix: " + kv[0]);
+            for (int i = 0; i < Integer.parseInt(kv[1]); i++) schedule.add(op);
+        }
+        return schedule;
+    }
+
+    private static String pick(List<String> ids) { return ids.get(ThreadLocalRandom.current().nextInt(ids.size())); }
+
+    /**
+     * Issues requests at {@code RATE}/s, cycling through the weighted op schedule, on {@code CONCURRENCY} workers.
+     * Latency is measured from each request's intended start, not from when a worker picked it up.
+     */
+    private Map<String, Stats> drive(List<Op> schedule, int seconds) throws Exception {
+        Map<String, Recorder> recorders = new LinkedHashMap<>();
+        schedule.forEach(op -> recorders.computeIfAbsent(op.name(), k -> new Recorder()));
+        wm.resetRequests();
+        ExecutorService workers = Executors.newFixedThreadPool(CONCURRENCY);
+        long interval = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long total = (long) RATE * seconds;
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * interval;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            Op op = schedule.get((int) (i % schedule.size()));
+            Recorder rec = recorders.get(op.name());
+            workers.execute(() -> {
+                int status;
+                try {
+                    status = send(op.request().get().timeout(Duration.ofSeconds(30)));
+                } catch (Exception e) {
+                    status = -1;
+                }
+                rec.record(System.nanoTime() - intended, status == op.expected(), status == 502);
+            });
+        }
+        workers.shutdown();
+        assertTrue(workers.awaitTermination(2, TimeUnit.MINUTES), "load did not drain");
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long injected = injectedFaults();
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        recorders.forEach((name, rec) -> stats.put(name, rec.stats(elapsed, name.equals("price") ? injected : 0)));
+        return stats;
+    }
+
+    /** Pricing calls answered by the fault stub in this run, from WireMock's journal; each may explain one 502. */
+    private static long injectedFaults() {
+        if (faultStub == null) return 0;
+        return wm.getAllServeEvents().stream()
+                .filter(e -> e.getStubMapping() != null && faultStub.getId().equals(e.getStubMapping().getId()))
+                .count();
+    }
+
+    private int send(HttpRequest.Builder req) throws IOException, InterruptedException {
+        return http.send(req.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private void report(Map<String, Stats> results) throws IOException {
+        System.out.printf("%-8s %8s %8s %10s %9s %9s %9s%n", "op", "count", "errors", "ops/s", "p50 ms", "p99 ms", "p99.9 ms");
+        results.forEach((name, s) -> System.out.printf("%-8s %8d %8d %10.1f %9.2f %9.2f %9.2f%n",
+                name, s.count(), s.errors(), s.throughput(), s.p50Ms(), s.p99Ms(), s.p999Ms()));
+        File out = new File("target/perf/latency-results.json");
+        out.getParentFile().mkdirs();
+        JSON.writeValue(out, results);
+    }
+
+    private void compare(Map<String, Stats> results) throws IOException {
+        results.forEach((name, s) -> assertEquals(0, s.errors(), name + ": unexpected error responses"));
+        if (UPDATE_BASELINE) {
+            RECORDED_BASELINE.getParentFile().mkdirs();
+            JSON.writeValue(RECORDED_BASELINE, results);
+            System.out.println("Recorded latency baseline " + RECORDED_BASELINE.getPath() + "; copy it to " + BASELINE.getPath());
+            return;
+        }
+        assertTrue(BASELINE.exists(), "No latency baseline at " + BASELINE.getPath()
+                + "; record one with -Dperf.baseline.update=true and copy " + RECORDED_BASELINE.getPath() + " there");
+        Map<String, Stats> baseline = JSON.readValue(BASELINE,
+                JSON.getTypeFactory().constructMapType(LinkedHashMap.class, String.class, Stats.class));
+        List<String> regressions = new ArrayList<>();
+        baseline.forEach((name, was) -> {
+            Stats now = results.get(name);
+            if (now == null) return;
+            latency(regressions, name, "p50", was.p50Ms(), now.p50Ms(), LATENCY_TOLERANCE);
+            latency(regressions, name, "p99", was.p99Ms(), now.p99Ms(), LATENCY_TOLERANCE);
+            latency(regressions, name, "p99.9", was.p999Ms(), now.p999Ms(), TAIL_TOLERANCE);
+            if (now.throughput() < was.throughput() * (1 - THROUGHPUT_TOLERANCE)) {
+                regressions.add(String.format("%s throughput %.1f -> %.1f ops/s", name, was.throughput(), now.throughput()));
+            }
+        });
+        assertTrue(regressions.isEmpty(), "Latency regressions against " + BASELINE.getPath() + ":\n  "
+                + String.join("\n  ", regressions));
+    }
+
+    private static void latency(List<String> regressions, String op, String pct, double was, double now, double tolerance) {
+        if (now > was * (1 + tolerance) && now - was > MIN_REGRESSION_MS) {
+            regressions.add(String.format("%s %s %.2f -> %.2f ms", op, pct, was, now));
+        }
+    }
+
+    private static String uri(InetSocketAddress addr) {
+        return "mongodb://" + addr.getHostString() + ":" + addr.getPort();
+    }
+
+    interface RequestFactory { HttpRequest.Builder get(); }
+
+    record Op(String name, int expected, RequestFactory request) {}
+
+    record Stats(long count, long errors, double throughput, double p50Ms, double p99Ms, double p999Ms, double maxMs) {}
+
+    static final class Recorder {
+        final Histogram histogram = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(2), 3);
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong badGateways = new AtomicLong();
+
+        void record(long nanos, boolean ok, boolean badGateway) {
+            histogram.recordValue(Math.min(nanos, histogram.getHighestTrackableValue()));
+            if (ok) return;
+            if (badGateway) badGateways.incrementAndGet();
+            else errors.incrementAndGet();
+        }
+
+        /** 502s beyond the {@code injected} pricing faults are errors: a breaker trip or a real gateway failure. */
+        Stats stats(double elapsedSeconds, long injected) {
+            long unexplained = errors.get() + Math.max(0, badGateways.get() - injected);
+            return new Stats(histogram.getTotalCount(), unexplained, histogram.getTotalCount() / elapsedSeconds,
+                    ms(histogram.getValueAtPercentile(50)), ms(histogram.getValueAtPercentile(99)),
+                    ms(histogram.getValueAtPercentile(99.9)), ms(histogram.getMaxValue()));
+        }
+
+        private static double ms(long nanos) { return nanos / 1e6; }
+    }
+}
@@ -0,0 +1,170 @@
+package com.practice.mongoapi;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.practice.mongoapi.dto.BatchQuoteRequest;
+import com.practice.mongoapi.dto.BookDto;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+class PricingMicroBatchWireMockIT {
+
+    /** Answers every item in request order; a title of {@code Unpriced} gets an error item. */
+    static final String BATCH_RESPONSE = "{\"results\":[{{#each (jsonPath request.body '$.items') as |item|}}"
+            + "{{#unless @first}},{{/unless}}"
+            + "{{#if (eq item.title 'Unpriced')}}{\"error\":\"no price for title\"}{{else}}{\"discountPct\":0.25}{{/if}}"
+            + "{{/each}}]}";
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:6.0");
+
+    static WireMockServer wm = new WireMockServer(options().dynamicPort());
+    static { wm.start(); }
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+        r.add("spring.data.mongodb.database", () -> "micro_batch_it");
+        r.add("pricing.base-url", () -> wm.baseUrl());
+        r.add("pricing.cache.enabled", () -> "false");
+        r.add("pricing.micro-batch.enabled", () -> "true");
+        r.add("pricing.micro-batch.window", () -> "200ms");
+        r.add("pricing.micro-batch.max-in-flight", () -> "1");
+        // retry the batch endpoint on every batch, so a test stubbing it away does not affect the next one
+        r.add("pricing.micro-batch.retry-after", () -> "0s");
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    CircuitBreaker pricingCircuitBreaker;
+
+    private String api(String path) { return "http://localhost:" + port + path; }
+
+    @AfterAll
+    static void shutdown() { wm.stop(); }
+
+    @BeforeEach
+    void reset() {
+        wm.resetAll();
+        pricingCircuitBreaker.reset();
+    }
+
+    private String createBook(String title, double price) {
+        return given().contentType("application/json")
+                .body(new BookDto(title, "Batcher", price, List.of()))
+                .post(api("/api/books")).then().statusCode(201)
+                .extract().path("id");
+    }
+
+    private void stubBatchEndpoint() {
+        wm.stubFor(post(urlPathEqualTo("/discounts"))
+                .willReturn(okJson(BATCH_RESPONSE).withTransformers("response-template")));
+    }
+
+    @Test
+    void concurrent_lookups_go_out_as_one_batch_call() {
+        List<String> ids = IntStream.range(0, 6).mapToObj(i -> createBook("Batched " + i, 40.00)).toList();
+        stubBatchEndpoint();
+
+        given().contentType("application/json")
+                .body(new BatchQuoteRequest(ids))
+                .post(api("/api/books/price-with-discount"))
+                .then().statusCode(200)
+                .body("size()", equalTo(6))
+                .body("status", everyItem(equalTo(200)))
+                .body("quote.finalPrice", everyItem(closeTo(30.00f, 0.01f)));
+
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/discounts"))
+                .withHeader("Content-Type", containing("application/json"))
+                .withRequestBody(matchingJsonPath("$.items[5].author", equalTo("Batcher"))));
+        wm.verify(0, getRequestedFor(urlPathEqualTo("/discount")));
+    }
+
+    @Test
+    void error_item_fails_only_its_own_quote() {
+        String first = createBook("Priced First", 20.00);
+        String unpriced = createBook("Unpriced", 20.00);
+        String last = createBook("Priced Last", 20.00);
+        stubBatchEndpoint();
+
+        given().contentType("application/json")
+                .body(new BatchQuoteRequest(List.of(first, unpriced, last)))
+                .post(api("/api/books/price-with-discount"))
+                .then().statusCode(200)
+                .body("[0].status", equalTo(200))
+                .body("[0].quote.finalPrice", closeTo(15.00f, 0.01f))
+                .body("[1].bookId", is(unpriced))
+                .body("[1].status", equalTo(502))
+                .body("[2].status", equalTo(200));
+        wm.verify(0, getRequestedFor(urlPathEqualTo("/discount")));
+    }
+
+    @Test
+    void missing_batch_endpoint_falls_back_to_single_calls() {
+        String id = createBook("No Batch Endpoint", 50.00);
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .willReturn(okJson("{\"discountPct\": 0.10}")));
+
+        given().get(api("/api/books/{id}/price-with-discount"), id)
+                .then().statusCode(200)
+                .body("finalPrice", closeTo(45.00f, 0.01f));
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/discounts")));
+        wm.verify(1, getRequestedFor(urlPathEqualTo("/discount"))
+                .withQueryParam("title", equalTo("No Batch Endpoint")));
+    }
+
+    @Test
+    void failing_batch_call_falls_back_to_single_calls() {
+        String id = createBook("Broken Batch Endpoint", 50.00);
+        wm.stubFor(post(urlPathEqualTo("/discounts")).willReturn(serverError()));
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .willReturn(okJson("{\"discountPct\": 0.20}")));
+
+        given().get(api("/api/books/{id}/price-with-discount"), id)
+                .then().statusCode(200)
+                .body("finalPrice", closeTo(40.00f, 0.01f));
+        wm.verify(1, getRequestedFor(urlPathEqualTo("/discount")));
+    }
+
+    @Test
+    void lookup_queued_behind_a_slow_batch_gives_up_within_the_client_timeout_budget() throws Exception {
+        String first = createBook("Slow Batch First", 50.00);
+        String second = createBook("Slow Batch Second", 50.00);
+        // headers at once, then a chunk every 800ms: only the 3s total-timeout ends each batch call
+        wm.stubFor(post(urlPathEqualTo("/discounts"))
+                .willReturn(okJson("{\"results\":[{\"discountPct\":0.10}]}").withChunkedDribbleDelay(5, 4000)));
+
+        CompletableFuture<Integer> occupying = CompletableFuture.supplyAsync(() ->
+                given().get(api("/api/books/{id}/price-with-discount"), first).statusCode());
+        Thread.sleep(400); // the first batch has gone out and holds the only sender
+        given().get(api("/api/books/{id}/price-with-discount"), second)
+                .then().statusCode(502)
+                // total-timeout 3s + 200ms window, not the 6s of waiting for the sender and then a call of its own
+                .time(lessThan(3900L), TimeUnit.MILLISECONDS);
+        assertEquals(502, occupying.get(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,108 @@
+package com.practice.mongoapi;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.practice.mongoapi.dto.BookDto;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.lessThan;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+class PricingResilienceWireMockIT {
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:6.0");
+
+    static WireMockServer wm = new WireMockServer(options().dynamicPort());
+    static { wm.start(); }
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+        r.add("spring.data.mongodb.database", () -> "resilience_it");
+        r.add("pricing.base-url", () -> wm.baseUrl());
+        r.add("pricing.cache.enabled", () -> "false");
+        r.add("pricing.http.read-timeout", () -> "300ms");
+        r.add("pricing.http.total-timeout", () -> "500ms");
+        r.add("pricing.circuit-breaker.window-size", () -> "4");
+        r.add("pricing.circuit-breaker.minimum-calls", () -> "4");
+        r.add("pricing.circuit-breaker.open-duration", () -> "1m");
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    CircuitBreaker pricingCircuitBreaker;
+
+    private String api(String path) { return "http://localhost:" + port + path; }
+
+    @AfterAll
+    static void shutdown() { wm.stop(); }
+
+    @BeforeEach
+    void reset() {
+        wm.resetAll();
+        pricingCircuitBreaker.reset();
+    }
+
+    private String createBook(String title) {
+        return given().contentType("application/json")
+                .body(new BookDto(title, "Nygard", 40.00, java.util.List.of()))
+                .post(api("/api/books")).then().statusCode(201)
+                .extract().path("id");
+    }
+
+    @Test
+    void slow_pricing_times_out_into_502() {
+        String id = createBook("Slow Pricing");
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .willReturn(okJson("{\"discountPct\": 0.10}").withFixedDelay(5_000)));
+
+        given().get(api("/api/books/{id}/price-with-discount"), id)
+                .then().statusCode(502)
+                .time(lessThan(2_000L));
+    }
+
+    @Test
+    void connection_fault_results_in_502() {
+        String id = createBook("Reset Pricing");
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+        given().get(api("/api/books/{id}/price-with-discount"), id)
+                .then().statusCode(502);
+    }
+
+    @Test
+    void open_circuit_fails_fast_without_calling_pricing() {
+        String id = createBook("Flaky Pricing");
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .willReturn(aResponse().withFault(Fault.EMPTY_RESPONSE)));
+
+        for (int i = 0; i < 4; i++) {
+            given().get(api("/api/books/{id}/price-with-discount"), id).then().statusCode(502);
+        }
+        wm.verify(4, getRequestedFor(urlPathEqualTo("/discount")));
+
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .willReturn(okJson("{\"discountPct\": 0.10}")));
+        given().get(api("/api/books/{id}/price-with-discount"), id).then().statusCode(502);
+        wm.verify(4, getRequestedFor(urlPathEqualTo("/discount")));
+    }
+}
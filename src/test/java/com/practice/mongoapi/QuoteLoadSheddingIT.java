@@ -0,0 +1,169 @@
+package com.practice.mongoapi;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ramps pricing latency from 20 ms to 2 s while {@value #QUOTE_CLIENTS} clients keep asking for quotes from a
+ * {@value #TOMCAT_THREADS}-thread Tomcat, and times {@code GET /api/books/{id}} and list requests alongside them.
+ * The quote limiter must keep CRUD p99 near its 20 ms baseline by answering excess quotes 503 + Retry-After.
+ * Prints quotes ok/shed and CRUD p50/p99 per step.
+ */
+@Testcontainers
+class QuoteLoadSheddingIT {
+
+    static final int BOOKS = 50;
+    static final int QUOTE_CLIENTS = 40;
+    static final int TOMCAT_THREADS = 24;
+    static final int PROBES = 200;
+    static final int THINK_MS = 50;
+    static final int[] RAMP_MS = {20, 200, 800, 2_000};
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:6.0");
+
+    static WireMockServer wm = new WireMockServer(options().dynamicPort()
+            .containerThreads(QUOTE_CLIENTS + 20)
+            .asynchronousResponseEnabled(true)
+            .asynchronousResponseThreads(QUOTE_CLIENTS));
+    static { wm.start(); }
+
+    @AfterAll
+    static void shutdown() { wm.stop(); }
+
+    final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void crud_p99_stays_flat_while_pricing_degrades() throws Exception {
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(Application.class).run(
+                "--server.port=0",
+                "--spring.data.mongodb.uri=" + mongo.getReplicaSetUrl(),
+                "--spring.data.mongodb.database=load_shedding",
+                "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                "--pricing.base-url=" + wm.baseUrl(),
+                "--pricing.cache.enabled=false",
+                "--pricing.http.read-timeout=5s",
+                "--pricing.http.total-timeout=10s",
+                // no slow calls for the breaker: only the limiter stands between pricing and the CRUD threads
+                "--pricing.circuit-breaker.slow-call-threshold=1m",
+                "--pricing.limiter.initial-limit=16",
+                "--pricing.limiter.max-limit=16",
+                "--pricing.limiter.latency-target=300ms")) {
+            String base = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+            List<String> ids = seed(base);
+
+            List<Step> steps = new ArrayList<>();
+            for (int delay : RAMP_MS) {
+                wm.stubFor(get(urlPathEqualTo("/discount"))
+                        .willReturn(okJson("{\"discountPct\": 0.10}").withFixedDelay(delay)));
+                Step step = step(base, ids, delay);
+                System.out.printf("pricing %5d ms  quotes ok %5d  shed %5d  other %3d  crud p50 %6.1f ms  p99 %6.1f ms%n",
+                        delay, step.ok(), step.shed(), step.other(), step.p50(), step.p99());
+                steps.add(step);
+            }
+
+            double bound = Math.max(steps.get(0).p99() * 3, 100);
+            for (Step step : steps) {
+                assertEquals(0, step.other(), "quotes neither 200 nor 503");
+                assertEquals(0, step.missingRetryAfter(), "503 without Retry-After");
+                assertTrue(step.p99() < bound, "CRUD p99 " + step.p99() + " ms at pricing " + step.delay() + " ms, bound " + bound);
+                // without shedding, CRUD requests queue behind quotes and p99 tracks the pricing delay instead
+                if (step.delay() >= 800) assertTrue(step.p99() < step.delay() / 4.0, "CRUD p99 follows pricing latency");
+            }
+            assertTrue(steps.get(steps.size() - 1).shed() > 0, "expected quotes to be shed at 2 s pricing latency");
+        }
+    }
+
+    /** Quote load for the whole step; CRUD is probed once the limiter has seen a few slow responses. */
+    private Step step(String base, List<String> ids, int delay) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger shed = new AtomicInteger();
+        AtomicInteger other = new AtomicInteger();
+        AtomicInteger missingRetryAfter = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(QUOTE_CLIENTS);
+        for (int c = 0; c < QUOTE_CLIENTS; c++) {
+            int n = c;
+            clients.submit(() -> {
+                for (int i = n; running.get(); i++) {
+                    HttpRequest req = HttpRequest.newBuilder(
+                            URI.create(base + "/api/books/" + ids.get(i % ids.size()) + "/price-with-discount")).build();
+                    HttpResponse<Void> resp = http.send(req, HttpResponse.BodyHandlers.discarding());
+                    if (resp.statusCode() == 200) {
+                        ok.incrementAndGet();
+                        Thread.sleep(THINK_MS);
+                    } else if (resp.statusCode() == 503) {
+                        shed.incrementAndGet();
+                        if (resp.headers().firstValue("Retry-After").isEmpty()) missingRetryAfter.incrementAndGet();
+                        Thread.sleep(100); // a client honouring Retry-After, scaled down
+                    } else {
+                        other.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        Thread.sleep(3L * delay + 500);
+
+        long[] latencies = new long[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            String path = i % 2 == 0 ? "/api/books/" + ids.get(i % ids.size()) : "/api/books?page=0&size=10";
+            long sent = System.nanoTime();
+            HttpResponse<Void> resp = http.send(HttpRequest.newBuilder(URI.create(base + path)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            latencies[i] = System.nanoTime() - sent;
+            assertEquals(200, resp.statusCode(), path);
+        }
+        running.set(false);
+        clients.shutdown();
+        assertTrue(clients.awaitTermination(30, TimeUnit.SECONDS), "quote clients did not finish");
+
+        Arrays.sort(latencies);
+        return new Step(delay, ok.get(), shed.get(), other.get(), missingRetryAfter.get(),
+                latencies[PROBES / 2] / 1e6, latencies[(int) Math.ceil(PROBES * 0.99) - 1] / 1e6);
+    }
+
+    private List<String> seed(String base) throws Exception {
+        String ndjson = IntStream.range(0, BOOKS)
+                .mapToObj(i -> "{\"title\":\"Shed " + i + "\",\"author\":\"Load\",\"price\":20.0}")
+                .collect(Collectors.joining("\n"));
+        http.send(HttpRequest.newBuilder(URI.create(base + "/api/books/bulk"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson)).build(), HttpResponse.BodyHandlers.discarding());
+        String export = http.send(HttpRequest.newBuilder(URI.create(base + "/api/books/export")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        List<String> ids = export.lines()
+                .map(line -> io.restassured.path.json.JsonPath.from(line).getString("id"))
+                .toList();
+        assertEquals(BOOKS, ids.size());
+        return ids;
+    }
+
+    record Step(int delay, int ok, int shed, int other, int missingRetryAfter, double p50, double p99) {}
+}
@@ -0,0 +1,127 @@
+package com.practice.mongoapi;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.practice.mongoapi.dto.BookDto;
+import com.practice.mongoapi.dto.BookPatch;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static io.restassured.RestAssured.given;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+class QuoteRefresherIT {
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:6.0");
+
+    static WireMockServer wm = new WireMockServer(options().dynamicPort());
+    static { wm.start(); }
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.data.mongodb.uri", mongo::getReplicaSetUrl);
+        r.add("pricing.base-url", () -> wm.baseUrl());
+        r.add("pricing.cache.enabled", () -> "false");
+        r.add("books.quotes.enabled", () -> "true");
+        r.add("books.quotes.sweep-interval", () -> "200ms");
+        r.add("books.quotes.refresh-after", () -> "1h");
+        r.add("books.quotes.max-staleness", () -> "2h");
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    private String api(String path) { return "http://localhost:" + port + path; }
+
+    @AfterAll
+    static void shutdown() { wm.stop(); }
+
+    @BeforeEach
+    void reset() {
+        wm.resetAll();
+        mongoTemplate.dropCollection("books");
+        mongoTemplate.dropCollection("quotes");
+    }
+
+    @Test
+    void stored_quote_is_served_and_updated_books_are_requoted_first() {
+        wm.stubFor(get(urlPathEqualTo("/discount")).withQueryParam("price", matching("40(\\.0+)?"))
+                .willReturn(okJson("{\"discountPct\": 0.25}")));
+        String id = given().contentType("application/json")
+                .body(new BookDto("Refactoring", "Fowler", 40.0, java.util.List.of()))
+                .post(api("/api/books")).then().statusCode(201).extract().path("id");
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> quote(id) != null);
+
+        // the pricing service is down, yet the pre-computed quote answers
+        wm.resetAll();
+        wm.stubFor(get(urlPathEqualTo("/discount")).willReturn(serverError()));
+        String v1 = given().get(api("/api/books/{id}/price-with-discount"), id)
+                .then().statusCode(200)
+                .body("discountPct", equalTo(0.25f))
+                .body("finalPrice", equalTo(30.0f))
+                .extract().asString();
+        given().get(api("/api/v2/books/{id}/price-with-discount"), id)
+                .then().statusCode(200)
+                .body(is(v1));
+
+        wm.stubFor(get(urlPathEqualTo("/discount")).withQueryParam("price", matching("50(\\.0+)?"))
+                .willReturn(okJson("{\"discountPct\": 0.1}")));
+        given().contentType("application/json").body(new BookPatch(null, null, 50.0, null))
+                .patch(api("/api/books/{id}"), id).then().statusCode(200);
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> quote(id).getDouble("price") == 50.0);
+        given().get(api("/api/books/{id}/price-with-discount"), id)
+                .then().statusCode(200)
+                .body("originalPrice", equalTo(50.0f))
+                .body("finalPrice", equalTo(45.0f));
+    }
+
+    @Test
+    void stale_quote_falls_back_to_a_live_call() {
+        wm.stubFor(get(urlPathEqualTo("/discount")).willReturn(okJson("{\"discountPct\": 0.5}")));
+        String id = given().contentType("application/json")
+                .body(new BookDto("Stale", "Author", 10.0, java.util.List.of()))
+                .post(api("/api/books")).then().statusCode(201).extract().path("id");
+        await().atMost(Duration.ofSeconds(10)).until(() -> quote(id) != null);
+
+        wm.resetAll();
+        wm.stubFor(get(urlPathEqualTo("/discount")).willReturn(serverError()));
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)),
+                new Update().set("quotedAt", Date.from(Instant.now().minus(Duration.ofHours(3)))), "quotes");
+
+        given().get(api("/api/books/{id}/price-with-discount"), id).then().statusCode(502);
+        given().get(api("/api/v2/books/{id}/price-with-discount"), id).then().statusCode(502);
+        wm.verify(moreThanOrExactly(1), getRequestedFor(urlPathEqualTo("/discount")));
+    }
+
+    private Document quote(String id) {
+        return mongoTemplate.findById(id, Document.class, "quotes");
+    }
+}
@@ -0,0 +1,173 @@
+package com.practice.mongoapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cold-start comparison of the plain executable jar with the fast-startup build ({@code mvn -Pfast-startup verify}):
+ * each mode is launched {@code startup.runs} times as its own JVM against an in-process Mongo stand-in
+ * (or {@code -Dstartup.mongo.uri}) and timed from process launch to the first {@code 200} from {@code GET /api/books}.
+ * Resident set size is read at that moment. Medians per mode go to {@code target/startup/startup-results.json};
+ * JVM output of every run is kept next to it.
+ */
+@EnabledIfSystemProperty(named = "startup.benchmark", matches = "true")
+class StartupBenchmarkIT {
+
+    static final String MONGO_URI = System.getProperty("startup.mongo.uri", "");
+    static final File JAR = new File(System.getProperty("startup.jar", "target/mongoapi-1.1.0.jar"));
+    static final File DIR = new File(System.getProperty("startup.dir", "target/fast-startup"));
+    static final int RUNS = Integer.getInteger("startup.runs", 5);
+    static final Duration TIMEOUT = Duration.ofSeconds(Integer.getInteger("startup.timeout-seconds", 120));
+    static final File OUT = new File("target/startup");
+    static final String JAVA = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    static MongoServer mongo;
+
+    final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+
+    @BeforeAll
+    static void start() {
+        if (MONGO_URI.isBlank()) mongo = new MongoServer(new MemoryBackend());
+    }
+
+    @AfterAll
+    static void shutdown() {
+        if (mongo != null) mongo.shutdownNow();
+    }
+
+    @Test
+    void fast_startup_build_answers_first_request_sooner() throws Exception {
+        File app = new File(DIR, JAR.getName());
+        File archive = new File(DIR, "application.jsa");
+        assertTrue(JAR.isFile() && app.isFile() && archive.isFile(), "run mvn -Pfast-startup verify to build " + DIR);
+        String mongoUri = MONGO_URI.isBlank() ? uri(mongo.bind()) : MONGO_URI;
+        OUT.mkdirs();
+
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("jar", List.of("-jar", JAR.getPath()));
+        modes.put("aot", List.of("-Dspring.aot.enabled=true", "-jar", app.getPath()));
+        modes.put("aot+cds", List.of("-XX:SharedArchiveFile=" + archive.getPath(), "-Dspring.aot.enabled=true", "-jar", app.getPath()));
+
+        Map<String, Stats> results = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+            long[] millis = new long[RUNS];
+            long[] rssKb = new long[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                Sample s = launch(mode.getKey() + "-" + run, mode.getValue(), mongoUri);
+                millis[run] = s.millis();
+                rssKb[run] = s.rssKb();
+            }
+            results.put(mode.getKey(), Stats.of(millis, rssKb));
+        }
+        report(results);
+
+        long jar = results.get("jar").firstRequestMs();
+        long fast = results.get("aot+cds").firstRequestMs();
+        assertTrue(fast < jar, "AOT + CDS first request after " + fast + " ms, plain jar after " + jar + " ms");
+    }
+
+    private Sample launch(String name, List<String> mode, String mongoUri) throws Exception {
+        int port = freePort();
+        List<String> cmd = new ArrayList<>(List.of(JAVA));
+        cmd.addAll(mode);
+        cmd.addAll(List.of(
+                "--server.port=" + port,
+                "--spring.data.mongodb.uri=" + mongoUri,
+                "--spring.data.mongodb.database=startup",
+                "--books.cache.change-stream.enabled=" + !MONGO_URI.isBlank()));
+        File log = new File(OUT, name + ".log");
+        URI probe = URI.create("http://localhost:" + port + "/api/books?page=0&size=1");
+
+        long launched = System.nanoTime();
+        Process process = new ProcessBuilder(cmd).redirectErrorStream(true).redirectOutput(log).start();
+        try {
+            while (System.nanoTime() - launched < TIMEOUT.toNanos()) {
+                if (!process.isAlive()) throw new IllegalStateException(name + " exited, see " + log);
+                if (ok(probe)) return new Sample((System.nanoTime() - launched) / 1_000_000, rssKb(process.pid()));
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException(name + " did not answer within " + TIMEOUT + ", see " + log);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private boolean ok(URI probe) throws InterruptedException {
+        try {
+            return http.send(HttpRequest.newBuilder(probe).build(), HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false; // not listening yet
+        }
+    }
+
+    /** VmRSS from /proc on Linux, {@code ps} elsewhere. */
+    private static long rssKb(long pid) throws IOException, InterruptedException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (Files.exists(status)) {
+            return Files.readAllLines(status).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .mapToLong(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                    .findFirst().orElse(-1);
+        }
+        Process ps = new ProcessBuilder("ps", "-o", "rss=", "-p", Long.toString(pid)).start();
+        String out = new String(ps.getInputStream().readAllBytes()).trim();
+        ps.waitFor();
+        return out.isEmpty() ? -1 : Long.parseLong(out);
+    }
+
+    private static void report(Map<String, Stats> results) throws IOException {
+        long jar = results.get("jar").firstRequestMs();
+        System.out.printf("%-8s %16s %14s %10s%n", "mode", "first req ms", "min ms", "RSS MB");
+        results.forEach((name, s) -> System.out.printf("%-8s %9d (%3.0f%%) %14d %10.1f%n",
+                name, s.firstRequestMs(), 100.0 * s.firstRequestMs() / jar, s.minFirstRequestMs(), s.rssKb() / 1024.0));
+        JSON.writeValue(new File(OUT, "startup-results.json"), results);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String uri(InetSocketAddress address) {
+        return "mongodb://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    record Sample(long millis, long rssKb) {}
+
+    /** Medians over the runs of one mode. */
+    record Stats(long firstRequestMs, long minFirstRequestMs, long rssKb) {
+        static Stats of(long[] millis, long[] rssKb) {
+            Arrays.sort(millis);
+            Arrays.sort(rssKb);
+            return new Stats(millis[millis.length / 2], millis[0], rssKb[rssKb.length / 2]);
+        }
+    }
+}
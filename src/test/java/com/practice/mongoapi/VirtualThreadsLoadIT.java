@@ -0,0 +1,150 @@
+package com.practice.mongoapi;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Holds 1,000 price-with-discount requests in flight against a pricing stub with 200 ms latency,
+ * once on Tomcat's platform thread pool and once with {@code spring.threads.virtual.enabled}. Prints throughput and
+ * p50/p99 per mode; no quote may fail, and virtual threads must clearly beat the platform pool. Skipped below Java 21:
+ * run with {@code mvn -Pjava21 -Dtest=VirtualThreadsLoadIT test}.
+ */
+@Testcontainers
+class VirtualThreadsLoadIT {
+
+    static final int BOOKS = 1_000;
+    static final int IN_FLIGHT = 1_000;
+    static final int REQUESTS = 10_000;
+    static final int PRICING_DELAY_MS = 200;
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:6.0");
+
+    static WireMockServer wm = new WireMockServer(options().dynamicPort()
+            .containerThreads(200)
+            .jettyAcceptQueueSize(IN_FLIGHT)
+            .asynchronousResponseEnabled(true)
+            .asynchronousResponseThreads(50));
+    static { wm.start(); }
+
+    @AfterAll
+    static void shutdown() { wm.stop(); }
+
+    final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void virtual_threads_sustain_more_in_flight_quotes_than_the_platform_pool() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+        wm.stubFor(get(urlPathEqualTo("/discount"))
+                .willReturn(okJson("{\"discountPct\": 0.10}").withFixedDelay(PRICING_DELAY_MS)));
+
+        Result platform = run(false);
+        print("platform", platform);
+        Result virtual = run(true);
+        print("virtual", virtual);
+
+        assertEquals(0, platform.failures(), "failed quotes on the platform pool");
+        assertEquals(0, virtual.failures(), "failed quotes on virtual threads");
+        assertTrue(virtual.throughput() >= platform.throughput(), "virtual threads slower than the platform pool");
+        assertTrue(virtual.throughput() > platform.throughput() * 1.5,
+                "expected virtual threads to clearly beat the 200-thread platform pool");
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        String database = virtualThreads ? "load_virtual" : "load_platform";
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(Application.class).run(
+                "--server.port=0",
+                "--spring.data.mongodb.uri=" + mongo.getReplicaSetUrl(),
+                "--spring.data.mongodb.database=" + database,
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--pricing.base-url=" + wm.baseUrl(),
+                "--pricing.cache.enabled=false",
+                // measures how many quotes each mode sustains, so nothing may be shed
+                "--pricing.limiter.enabled=false",
+                "--pricing.http.max-connections=" + IN_FLIGHT,
+                "--pricing.http.max-connections-per-route=" + IN_FLIGHT,
+                "--pricing.http.pool-timeout=10s",
+                "--pricing.http.total-timeout=30s")) {
+            String base = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+            List<String> ids = seed(base);
+
+            assertEquals(0, drive(base, ids, IN_FLIGHT).failures(), "failed warm-up quotes");
+            return drive(base, ids, REQUESTS);
+        }
+    }
+
+    private List<String> seed(String base) throws Exception {
+        String ndjson = IntStream.range(0, BOOKS)
+                .mapToObj(i -> "{\"title\":\"Load " + i + "\",\"author\":\"Bench\",\"price\":20.0}")
+                .collect(Collectors.joining("\n"));
+        http.send(HttpRequest.newBuilder(URI.create(base + "/api/books/bulk"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson)).build(), HttpResponse.BodyHandlers.discarding());
+        String export = http.send(HttpRequest.newBuilder(URI.create(base + "/api/books/export")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        List<String> ids = export.lines()
+                .map(line -> io.restassured.path.json.JsonPath.from(line).getString("id"))
+                .toList();
+        assertEquals(BOOKS, ids.size());
+        return ids;
+    }
+
+    private Result drive(String base, List<String> ids, int requests) throws Exception {
+        Semaphore inFlight = new Semaphore(IN_FLIGHT);
+        AtomicInteger failures = new AtomicInteger();
+        long[] latencies = new long[requests];
+        List<CompletableFuture<?>> calls = new ArrayList<>(requests);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int n = i;
+            long sent = System.nanoTime();
+            HttpRequest req = HttpRequest.newBuilder(
+                    URI.create(base + "/api/books/" + ids.get(i % ids.size()) + "/price-with-discount")).build();
+            calls.add(http.sendAsync(req, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((resp, err) -> {
+                        latencies[n] = System.nanoTime() - sent;
+                        if (err != null || resp.statusCode() != 200) failures.incrementAndGet();
+                        inFlight.release();
+                    }));
+        }
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        return new Result(failures.get(), requests / seconds,
+                latencies[requests / 2] / 1e6,
+                latencies[(int) Math.ceil(requests * 0.99) - 1] / 1e6);
+    }
+
+    private static void print(String mode, Result r) {
+        System.out.printf("%-9s %10.0f req/s  p50 %8.1f ms  p99 %8.1f ms  %d failed%n",
+                mode, r.throughput(), r.p50(), r.p99(), r.failures());
+    }
+
+    record Result(int failures, double throughput, double p50, double p99) {}
+}